@@ -28,12 +28,18 @@ public class Main {
                 case 2 -> StudentService.updateStudent(input);
                 case 3 -> StudentService.removeStudent(input);
                 case 4 -> StudentService.getStudent(input);
-                case 5 -> StudentService.getAllStudents();
+                case 5 -> StudentService.getAllStudents(input);
                 case 6 -> StudentService.showStatistics();
                 case 7 -> StudentService.exportToPDF();
                 case 8 -> StudentService.importStudentsFromCSV(input);
                 case 9 -> StudentService.batchUpdateGpas(input);
-                case 0 -> exit = 'y';
+                case 10 -> StudentService.showGpaRankings(input);
+                case 11 -> StudentService.filterStudents(input);
+                case 12 -> StudentService.exportCourseReports();
+                case 0 -> {
+                    StudentService.saveChanges();
+                    exit = 'y';
+                }
                 default -> System.out.println("Invalid operation. Please try again.\n");
             }
         } while (exit == 'n');
@@ -55,6 +61,9 @@ public class Main {
                 7. Export to PDF
                 8. Import Students from CSV
                 9. Batch Update GPAs
+                10. GPA Rankings
+                11. Filter Students
+                12. Export Per-Course PDF Reports
                 0. Save & Exit
                 """);
 
@@ -1,6 +1,8 @@
 package customexceptions;
 
 public class InvalidAgeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public InvalidAgeException(String message) {
         super(message);
     }
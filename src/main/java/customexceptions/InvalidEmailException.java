@@ -1,6 +1,8 @@
 package customexceptions;
 
 public class InvalidEmailException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     private final String email;
     public InvalidEmailException(String message) {
         super(message);
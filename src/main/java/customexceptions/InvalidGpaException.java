@@ -1,6 +1,8 @@
 package customexceptions;
 
 public class InvalidGpaException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public InvalidGpaException(String message) {
         super(message);
     }
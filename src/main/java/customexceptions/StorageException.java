@@ -4,6 +4,8 @@ package customexceptions;
  * Exception thrown for errors during storage operations
  */
 public class StorageException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
     public StorageException(String message) {
         super(message);
     }
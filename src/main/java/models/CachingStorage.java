@@ -0,0 +1,231 @@
+package models;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage decorator that keeps recently read records in a size-bounded LRU
+ * cache so repeated lookups of the same IDs do not reach the wrapped storage.
+ *
+ * The cache is limited by both an entry count and an estimated byte size.
+ * Entries are invalidated by every write to their ID, and the hit, miss and
+ * eviction counters can be used to size the cache against real access patterns.
+ */
+public class CachingStorage<T> extends ForwardingStorage<T> {
+
+    private static final int BYTES_PER_ENTRY_OVERHEAD = 64;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private long sizeInBytes;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Wraps a storage with a record cache
+     *
+     * @param delegate The storage to read from on a cache miss
+     * @param maxEntries Maximum number of cached records
+     * @param maxBytes Maximum estimated size of the cached records
+     */
+    public CachingStorage(Storage<T> delegate, int maxEntries, long maxBytes) {
+        super(delegate);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public String get(String model, String id) {
+        String key = key(model, id);
+        long readGeneration;
+        synchronized (lock) {
+            String cached = cache.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            readGeneration = generation;
+        }
+
+        String record = delegate.get(model, id);
+        if (record != null && !record.isEmpty()) {
+            synchronized (lock) {
+                // Skip caching if a write happened while reading, the record may be stale
+                if (readGeneration == generation) {
+                    put(key, record);
+                }
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void add(Map<String, Object> map) {
+        try {
+            delegate.add(map);
+        } finally {
+            invalidate(map.get("model").toString(), idOf(map.get("obj")));
+        }
+    }
+
+    @Override
+    public void update(String model, String id, T obj) {
+        try {
+            delegate.update(model, id, obj);
+        } finally {
+            invalidate(model, id);
+        }
+    }
+
+    @Override
+    public void remove(String model, String id) {
+        try {
+            delegate.remove(model, id);
+        } finally {
+            invalidate(model, id);
+        }
+    }
+
+    @Override
+    public void batchAdd(String model, List<T> objects, String fileHeader) {
+        try {
+            delegate.batchAdd(model, objects, fileHeader);
+        } finally {
+            if (objects != null) {
+                for (T obj : objects) {
+                    invalidate(model, idOf(obj));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void batchUpdate(String model, Map<String, T> objects) {
+        try {
+            delegate.batchUpdate(model, objects);
+        } finally {
+            if (objects != null) {
+                for (String id : objects.keySet()) {
+                    invalidate(model, id);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void batchRemove(String model, Collection<String> ids) {
+        try {
+            delegate.batchRemove(model, ids);
+        } finally {
+            if (ids != null) {
+                for (String id : ids) {
+                    invalidate(model, id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every cached record
+     */
+    public void clear() {
+        synchronized (lock) {
+            cache.clear();
+            sizeInBytes = 0;
+            generation++;
+        }
+    }
+
+    public long getHitCount() {
+        synchronized (lock) {
+            return hits;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (lock) {
+            return misses;
+        }
+    }
+
+    public long getEvictionCount() {
+        synchronized (lock) {
+            return evictions;
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (lock) {
+            return cache.size();
+        }
+    }
+
+    public long getSizeInBytes() {
+        synchronized (lock) {
+            return sizeInBytes;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            long lookups = hits + misses;
+            return String.format("Cache: %d entries, %d bytes, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+                    cache.size(), sizeInBytes, hits, misses,
+                    lookups == 0 ? 0.0 : hits * 100.0 / lookups, evictions);
+        }
+    }
+
+    private void invalidate(String model, String id) {
+        synchronized (lock) {
+            String removed = cache.remove(key(model, id));
+            if (removed != null) {
+                sizeInBytes -= sizeOf(removed);
+            }
+            generation++;
+        }
+    }
+
+    /**
+     * Adds an entry and evicts the least recently used ones until the cache
+     * is within both budgets. Called with the lock held.
+     */
+    private void put(String key, String record) {
+        String previous = cache.put(key, record);
+        if (previous != null) {
+            sizeInBytes -= sizeOf(previous);
+        }
+        sizeInBytes += sizeOf(record);
+
+        Iterator<String> eldest = cache.values().iterator();
+        while ((cache.size() > maxEntries || sizeInBytes > maxBytes) && eldest.hasNext()) {
+            sizeInBytes -= sizeOf(eldest.next());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static String key(String model, String id) {
+        return model + '\0' + id;
+    }
+
+    private static long sizeOf(String record) {
+        return BYTES_PER_ENTRY_OVERHEAD + 2L * record.length();
+    }
+
+    private static String idOf(Object obj) {
+        String line = String.valueOf(obj);
+        int comma = line.indexOf(',');
+        return comma < 0 ? line : line.substring(0, comma);
+    }
+}
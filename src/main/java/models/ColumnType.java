@@ -0,0 +1,31 @@
+package models;
+
+/**
+ * Value types of a column in the columnar storage engine
+ */
+public enum ColumnType {
+    /** Variable-length UTF-8 text */
+    STRING(0),
+
+    /** Packed 4-byte integers */
+    INT(Integer.BYTES),
+
+    /** Packed 8-byte doubles */
+    DOUBLE(Double.BYTES),
+
+    /** Low-cardinality text stored as packed 4-byte codes into a per-column dictionary */
+    DICTIONARY(Integer.BYTES);
+
+    private final int width;
+
+    ColumnType(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Gets the on-disk width of one value, or 0 for variable-length columns
+     */
+    public int getWidth() {
+        return width;
+    }
+}
@@ -0,0 +1,898 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import customexceptions.StorageException;
+
+/**
+ * Storage that keeps each column of a model in its own binary file.
+ *
+ * Numeric columns are packed primitives ({@code <model>.<column>.col}), so
+ * scans read them without any text parsing. String columns are a data file of
+ * UTF-8 bytes ({@code .dat}) plus a fixed-width slot file ({@code .off}) with
+ * the offset and length of each row's value. The header is kept in
+ * {@code <model>.columns} and column types come from
+ * {@link StorageConfig#getColumnTypes(String)}.
+ *
+ * Every column has a value at the same row number, which makes updates
+ * in-place writes and lets {@link #scanColumns} read only the columns a
+ * caller needs. Removal moves the last row into the freed slot. Replaced
+ * string values are left behind in the data files.
+ *
+ * Dictionary columns are packed 4-byte codes in a {@code .col} file plus a
+ * {@code .dict} file listing each distinct value once, on the line matching
+ * its code. New values are appended to the dictionary before any code
+ * referring to them is written.
+ *
+ * Reads share a read/write lock and writes take it exclusively. A stream
+ * holds the read lock until it is closed, so writes from other threads, such
+ * as a write-behind flush, wait for it; a write from the thread that has the
+ * stream open fails instead of waiting forever.
+ */
+public class ColumnarStorage<T> implements Storage<T> {
+    private static final String SCHEMA_EXTENSION = ".columns";
+    private static final String FIXED_EXTENSION = ".col";
+    private static final String DATA_EXTENSION = ".dat";
+    private static final String SLOT_EXTENSION = ".off";
+    private static final String DICTIONARY_EXTENSION = ".dict";
+    private static final int SLOT_SIZE = Long.BYTES + Integer.BYTES;
+    private static final int READ_WINDOW_SIZE = 64 * 1024;
+
+    private final StorageConfig config;
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * In-memory state of one model
+     */
+    private static class Table {
+        String header;
+        String[] columnNames;
+        ColumnType[] types;
+        StringDictionary[] dictionaries;
+        final List<String> ids = new ArrayList<>();
+        final Map<String, Integer> rows = new HashMap<>();
+        final Map<Integer, UniqueColumnIndex> columnIndexes = new HashMap<>();
+    }
+
+    /**
+     * Creates a new ColumnarStorage with default configuration
+     */
+    public ColumnarStorage() {
+        this(new StorageConfig());
+    }
+
+    /**
+     * Creates a new ColumnarStorage with custom configuration
+     *
+     * @param config Storage configuration
+     */
+    public ColumnarStorage(StorageConfig config) {
+        this.config = config;
+    }
+
+    private Path getColumnPath(String model, String column, String extension) {
+        return config.getPathForModel(model, "." + column.toLowerCase(Locale.ROOT) + extension);
+    }
+
+    private void ensureDirectoryExists() {
+        File directory = new File(config.getDataDirectory());
+        if (!directory.exists()) {
+            boolean created = directory.mkdirs();
+            if (created) {
+                System.out.println("Created data directory: " + config.getDataDirectory());
+            }
+        }
+    }
+
+    /**
+     * Gets the state of a model, loading its schema and ID column on first use
+     */
+    private Table open(String model) {
+        // Readers may get here together, so the table is loaded at most once
+        return tables.computeIfAbsent(model, name -> {
+            Table table = new Table();
+            Path schemaPath = config.getPathForModel(name, SCHEMA_EXTENSION);
+            if (Files.exists(schemaPath)) {
+                try {
+                    define(name, table, Files.readString(schemaPath, StandardCharsets.UTF_8).trim());
+                    scanColumns(name, table, new int[] {0}, row -> {
+                        table.rows.put(row.getString(0), table.ids.size());
+                        table.ids.add(row.getString(0));
+                    });
+                } catch (IOException e) {
+                    throw new StorageException("Error opening columns for model: " + name, e);
+                }
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Takes the write lock, failing if this thread has a stream open: its read
+     * lock cannot be upgraded, so waiting would never end
+     */
+    private void lockForWrite() {
+        if (lock.getReadHoldCount() > 0) {
+            throw new IllegalStateException("Close the open stream before writing to columnar storage");
+        }
+        lock.writeLock().lock();
+    }
+
+    /**
+     * Sets the columns of a table from its header and the configured types,
+     * and loads the dictionaries of dictionary columns
+     */
+    private void define(String model, Table table, String header) throws IOException {
+        table.header = header;
+        table.columnNames = header.split(",");
+        table.types = new ColumnType[table.columnNames.length];
+        table.dictionaries = new StringDictionary[table.columnNames.length];
+        ColumnType[] configured = config.getColumnTypes(model);
+        for (int i = 0; i < table.types.length; i++) {
+            table.types[i] = configured != null && i < configured.length ? configured[i] : ColumnType.STRING;
+
+            String column = table.columnNames[i];
+            if (table.types[i] == ColumnType.DICTIONARY) {
+                if (Files.exists(getColumnPath(model, column, SLOT_EXTENSION))) {
+                    // Created before the column was configured as a dictionary, keep its layout
+                    table.types[i] = ColumnType.STRING;
+                    continue;
+                }
+                table.dictionaries[i] = new StringDictionary();
+                Path dictionaryPath = getColumnPath(model, column, DICTIONARY_EXTENSION);
+                if (Files.exists(dictionaryPath)) {
+                    for (String value : Files.readAllLines(dictionaryPath, StandardCharsets.UTF_8)) {
+                        table.dictionaries[i].encode(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the code of a dictionary value, appending the value to the
+     * dictionary file first if it is new
+     */
+    private int encode(String model, Table table, int column, String value) throws IOException {
+        StringDictionary dictionary = table.dictionaries[column];
+        int code = dictionary.codeOf(value);
+        if (code < 0) {
+            Files.writeString(getColumnPath(model, table.columnNames[column], DICTIONARY_EXTENSION),
+                    value + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            code = dictionary.encode(value);
+        }
+        return code;
+    }
+
+    /**
+     * Creates the schema and empty column files for a new model
+     */
+    private void create(String model, Table table, String fileHeader) throws IOException {
+        ensureDirectoryExists();
+        define(model, table, fileHeader);
+        for (int i = 0; i < table.columnNames.length; i++) {
+            if (table.types[i] == ColumnType.STRING) {
+                Files.write(getColumnPath(model, table.columnNames[i], DATA_EXTENSION), new byte[0]);
+                Files.write(getColumnPath(model, table.columnNames[i], SLOT_EXTENSION), new byte[0]);
+            } else {
+                Files.write(getColumnPath(model, table.columnNames[i], FIXED_EXTENSION), new byte[0]);
+                if (table.types[i] == ColumnType.DICTIONARY) {
+                    Files.write(getColumnPath(model, table.columnNames[i], DICTIONARY_EXTENSION), new byte[0]);
+                }
+            }
+        }
+        Files.writeString(config.getPathForModel(model, SCHEMA_EXTENSION), fileHeader, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits a record line into one value per column
+     */
+    private static String[] split(Table table, String line) {
+        String[] values = line.split(",", -1);
+        if (values.length != table.columnNames.length) {
+            throw new StorageException("Record does not match the columns of the model: " + line);
+        }
+        return values;
+    }
+
+    private static String join(String[] values) {
+        return String.join(",", values);
+    }
+
+    /**
+     * Appends rows to the end of every column file
+     */
+    private void appendRows(String model, Table table, List<String[]> rows) throws IOException {
+        for (int c = 0; c < table.columnNames.length; c++) {
+            String column = table.columnNames[c];
+            ColumnType type = table.types[c];
+
+            if (type == ColumnType.STRING) {
+                Path dataPath = getColumnPath(model, column, DATA_EXTENSION);
+                long offset = Files.size(dataPath);
+                try (DataOutputStream data = appendStream(dataPath);
+                     DataOutputStream slots = appendStream(getColumnPath(model, column, SLOT_EXTENSION))) {
+                    for (String[] row : rows) {
+                        byte[] bytes = row[c].getBytes(StandardCharsets.UTF_8);
+                        data.write(bytes);
+                        slots.writeLong(offset);
+                        slots.writeInt(bytes.length);
+                        offset += bytes.length;
+                    }
+                }
+            } else {
+                try (DataOutputStream out = appendStream(getColumnPath(model, column, FIXED_EXTENSION))) {
+                    for (String[] row : rows) {
+                        writeFixed(out, type, type == ColumnType.DICTIONARY ? encode(model, table, c, row[c]) : row[c]);
+                    }
+                }
+            }
+        }
+
+        for (String[] row : rows) {
+            table.rows.put(row[0], table.ids.size());
+            table.ids.add(row[0]);
+            String line = join(row);
+            for (UniqueColumnIndex index : table.columnIndexes.values()) {
+                index.add(line);
+            }
+        }
+    }
+
+    private static DataOutputStream appendStream(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    /**
+     * Writes a fixed-width value, taking dictionary columns as their already encoded code
+     */
+    private static void writeFixed(DataOutputStream out, ColumnType type, Object value) throws IOException {
+        out.write(encodeFixed(type, value).array());
+    }
+
+    private static ByteBuffer encodeFixed(ColumnType type, Object value) {
+        ByteBuffer buffer = ByteBuffer.allocate(type.getWidth());
+        try {
+            switch (type) {
+                case INT -> buffer.putInt(Integer.parseInt(value.toString().trim()));
+                case DOUBLE -> buffer.putDouble(Double.parseDouble(value.toString().trim()));
+                case DICTIONARY -> buffer.putInt((Integer) value);
+                case STRING -> throw new IllegalArgumentException("Strings are not fixed-width");
+            }
+        } catch (NumberFormatException e) {
+            throw new StorageException("Invalid " + type + " value: " + value, e);
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Reads every column of one row
+     */
+    private String[] readRow(String model, Table table, int row) throws IOException {
+        String[] values = new String[table.columnNames.length];
+        for (int c = 0; c < values.length; c++) {
+            String column = table.columnNames[c];
+            ColumnType type = table.types[c];
+
+            if (type == ColumnType.STRING) {
+                ByteBuffer slot = readAt(getColumnPath(model, column, SLOT_EXTENSION), (long) row * SLOT_SIZE, SLOT_SIZE);
+                ByteBuffer bytes = readAt(getColumnPath(model, column, DATA_EXTENSION), slot.getLong(), slot.getInt());
+                values[c] = new String(bytes.array(), 0, bytes.limit(), StandardCharsets.UTF_8);
+            } else {
+                ByteBuffer value = readAt(getColumnPath(model, column, FIXED_EXTENSION),
+                        (long) row * type.getWidth(), type.getWidth());
+                values[c] = switch (type) {
+                    case INT -> Integer.toString(value.getInt());
+                    case DICTIONARY -> table.dictionaries[c].decode(value.getInt());
+                    default -> Double.toString(value.getDouble());
+                };
+            }
+        }
+        return values;
+    }
+
+    private static ByteBuffer readAt(Path path, long position, int length) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of column file: " + path);
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    private static void writeAt(Path path, long position, ByteBuffer buffer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, position + buffer.position());
+            }
+        }
+    }
+
+    /**
+     * Overwrites one row in place. Changed string values are appended to the
+     * data file and their slot is repointed; numbers are overwritten directly.
+     */
+    private void writeRow(String model, Table table, int row, String[] oldValues, String[] values) throws IOException {
+        for (int c = 0; c < values.length; c++) {
+            if (values[c].equals(oldValues[c])) {
+                continue;
+            }
+            String column = table.columnNames[c];
+            ColumnType type = table.types[c];
+
+            if (type == ColumnType.STRING) {
+                Path dataPath = getColumnPath(model, column, DATA_EXTENSION);
+                long offset = Files.size(dataPath);
+                byte[] bytes = values[c].getBytes(StandardCharsets.UTF_8);
+                Files.write(dataPath, bytes, StandardOpenOption.APPEND);
+                ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE).putLong(offset).putInt(bytes.length).flip();
+                writeAt(getColumnPath(model, column, SLOT_EXTENSION), (long) row * SLOT_SIZE, slot);
+            } else {
+                Object value = type == ColumnType.DICTIONARY ? encode(model, table, c, values[c]) : values[c];
+                writeAt(getColumnPath(model, column, FIXED_EXTENSION), (long) row * type.getWidth(), encodeFixed(type, value));
+            }
+        }
+
+        String oldLine = join(oldValues);
+        String newLine = join(values);
+        for (UniqueColumnIndex index : table.columnIndexes.values()) {
+            index.remove(oldLine);
+            index.add(newLine);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void add(Map<String, Object> map) {
+        String model = map.get("model").toString();
+        T obj = (T) map.get("obj");
+        String fileHeader = map.get("fileHeader").toString();
+
+        lockForWrite();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                create(model, table, fileHeader);
+            }
+            List<String[]> rows = new ArrayList<>(1);
+            rows.add(split(table, obj.toString()));
+            appendRows(model, table, rows);
+        } catch (IOException e) {
+            throw new StorageException("Error adding record", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String get(String model, String id) {
+        lock.readLock().lock();
+        try {
+            Table table = open(model);
+            Integer row = table.rows.get(id);
+            if (row == null) {
+                return "";
+            }
+            return join(readRow(model, table, row));
+        } catch (IOException e) {
+            throw new StorageException("Error retrieving record with ID: " + id, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String model, String id) {
+        lockForWrite();
+        try {
+            Table table = open(model);
+            Integer row = table.rows.get(id);
+            if (row == null) {
+                return;
+            }
+
+            if (!table.columnIndexes.isEmpty()) {
+                String oldLine = join(readRow(model, table, row));
+                for (UniqueColumnIndex index : table.columnIndexes.values()) {
+                    index.remove(oldLine);
+                }
+            }
+
+            int last = table.ids.size() - 1;
+            for (int c = 0; c < table.columnNames.length; c++) {
+                String column = table.columnNames[c];
+                ColumnType type = table.types[c];
+                boolean string = type == ColumnType.STRING;
+                Path path = getColumnPath(model, column, string ? SLOT_EXTENSION : FIXED_EXTENSION);
+                int width = string ? SLOT_SIZE : type.getWidth();
+
+                // Move the last row into the freed slot, then drop the last slot
+                if (row != last) {
+                    writeAt(path, (long) row * width, readAt(path, (long) last * width, width));
+                }
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate((long) last * width);
+                }
+            }
+
+            table.rows.remove(id);
+            String lastId = table.ids.remove(last);
+            if (row != last) {
+                table.ids.set(row, lastId);
+                table.rows.put(lastId, row);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error removing record with ID: " + id, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(String model, String id, T obj) {
+        lockForWrite();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                throw new StorageException("File not found for model: " + model);
+            }
+            Integer row = table.rows.get(id);
+            if (row == null) {
+                throw new StorageException("Record with ID " + id + " not found");
+            }
+            writeRow(model, table, row, readRow(model, table, row), split(table, obj.toString()));
+        } catch (IOException e) {
+            throw new StorageException("Error updating record with ID: " + id, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getAll(String model) {
+        lock.readLock().lock();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                return Collections.emptyList();
+            }
+
+            List<String> lines = new ArrayList<>(table.ids.size() + 1);
+            lines.add(table.header);
+            scan(model, lines::add);
+            return lines;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void scan(String model, Consumer<String> action) {
+        lock.readLock().lock();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                return;
+            }
+
+            String[] values = new String[table.columnNames.length];
+            scanColumns(model, table, allColumns(table), row -> action.accept(toLine(table, row, values)));
+        } catch (IOException e) {
+            throw new StorageException("Error scanning records for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams the rows present when the stream is opened, reading every
+     * column file in step, one row at a time. The read lock is held until the
+     * stream is closed, so close it on the thread that opened it.
+     */
+    @Override
+    public Stream<String> stream(String model) {
+        Table table;
+        ColumnCursor cursor;
+        boolean opened = false;
+        lock.readLock().lock();
+        try {
+            table = open(model);
+            if (table.header == null) {
+                return Stream.empty();
+            }
+            cursor = new ColumnCursor(model, table, allColumns(table), 0);
+            opened = true;
+        } catch (IOException e) {
+            throw new StorageException("Error streaming records for model: " + model, e);
+        } finally {
+            if (!opened) {
+                lock.readLock().unlock();
+            }
+        }
+
+        String[] values = new String[table.columnNames.length];
+        Spliterator<String> rows = new Spliterators.AbstractSpliterator<>(cursor.rows,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED) {
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                try {
+                    if (!cursor.next()) {
+                        return false;
+                    }
+                } catch (IOException e) {
+                    throw new StorageException("Error streaming records for model: " + model, e);
+                }
+                action.accept(toLine(table, cursor.row, values));
+                return true;
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> {
+            try {
+                cursor.close();
+            } catch (IOException e) {
+                throw new StorageException("Error closing records stream for model: " + model, e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Reads a page of records in row order, seeking every column file to the
+     * first row of the page. Cursors hold the row number of a record.
+     */
+    @Override
+    public Page page(String model, PageCursor cursor, int pageSize) {
+        lock.readLock().lock();
+        try {
+            Table table = open(model);
+            List<String> records = new ArrayList<>();
+            int count = table.ids.size();
+            if (table.header == null || pageSize <= 0 || count == 0) {
+                return new Page(records, null, null, false);
+            }
+
+            int from = cursor == null ? 0 : locate(table, cursor);
+            int to = (int) Math.min(count, (long) from + pageSize);
+            String[] values = new String[table.columnNames.length];
+            try (ColumnCursor rows = new ColumnCursor(model, table, allColumns(table), from)) {
+                for (int row = from; row < to && rows.next(); row++) {
+                    records.add(toLine(table, rows.row, values));
+                }
+            }
+
+            PageCursor start = from < to ? new PageCursor(from, table.ids.get(from)) : null;
+            PageCursor next = to < count ? new PageCursor(to, table.ids.get(to)) : null;
+            return new Page(records, start, next, from > 0);
+        } catch (IOException e) {
+            throw new StorageException("Error reading page for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the row a cursor points to: its recorded row if its record is
+     * still there, else wherever a removal has moved the record to, else the
+     * recorded row
+     */
+    private static int locate(Table table, PageCursor cursor) {
+        int count = table.ids.size();
+        int row = (int) Math.min(cursor.getPosition(), count);
+        if (row < count && table.ids.get(row).equals(cursor.getId())) {
+            return row;
+        }
+        Integer moved = table.rows.get(cursor.getId());
+        return moved != null ? moved : row;
+    }
+
+    private static int[] allColumns(Table table) {
+        int[] all = new int[table.columnNames.length];
+        for (int c = 0; c < all.length; c++) {
+            all[c] = c;
+        }
+        return all;
+    }
+
+    /**
+     * Formats a row read with every column as a record line
+     *
+     * @param values Scratch array with one slot per column
+     */
+    private static String toLine(Table table, ProjectedRow row, String[] values) {
+        for (int c = 0; c < values.length; c++) {
+            values[c] = switch (table.types[c]) {
+                case STRING, DICTIONARY -> row.getString(c);
+                case INT -> Integer.toString(row.getInt(c));
+                case DOUBLE -> Double.toString(row.getDouble(c));
+            };
+        }
+        return join(values);
+    }
+
+    @Override
+    public void batchAdd(String model, List<T> objects, String fileHeader) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        lockForWrite();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                create(model, table, fileHeader);
+            }
+            List<String[]> rows = new ArrayList<>(objects.size());
+            for (T obj : objects) {
+                rows.add(split(table, obj.toString()));
+            }
+            appendRows(model, table, rows);
+        } catch (IOException e) {
+            throw new StorageException("Error during batch add operation", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void batchUpdate(String model, Map<String, T> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        lockForWrite();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                throw new StorageException("File not found for model: " + model);
+            }
+
+            boolean anyUpdates = false;
+            for (Map.Entry<String, T> entry : objects.entrySet()) {
+                Integer row = table.rows.get(entry.getKey());
+                if (row != null) {
+                    writeRow(model, table, row, readRow(model, table, row), split(table, entry.getValue().toString()));
+                    anyUpdates = true;
+                }
+            }
+
+            if (!anyUpdates) {
+                throw new StorageException("No matching records found for batch update");
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error during batch update operation", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean valueExistsInColumn(String model, String columnValue, int columnIndex, String... excludeId) {
+        // Exclusive, since the first call for a column builds its index
+        lockForWrite();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                return false;
+            }
+
+            UniqueColumnIndex index = table.columnIndexes.get(columnIndex);
+            if (index == null) {
+                UniqueColumnIndex built = new UniqueColumnIndex(columnIndex);
+                scan(model, built::add);
+                table.columnIndexes.put(columnIndex, built);
+                index = built;
+            }
+            return index.contains(columnValue, excludeId.length > 0 ? excludeId[0] : null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Column files are closed after every operation, so nothing is buffered here
+    }
+
+    /**
+     * Visits every row, reading only the requested columns. Numeric columns
+     * are delivered as primitives without any text parsing.
+     *
+     * @param model The model name
+     * @param columns Names of the columns to read, in the order they are exposed on the row
+     * @param action Called once per row with a reused view of the projected values
+     */
+    public void scanColumns(String model, List<String> columns, Consumer<ProjectedRow> action) {
+        lock.readLock().lock();
+        try {
+            Table table = open(model);
+            if (table.header == null) {
+                return;
+            }
+
+            int[] projection = new int[columns.size()];
+            for (int i = 0; i < projection.length; i++) {
+                projection[i] = -1;
+                for (int c = 0; c < table.columnNames.length; c++) {
+                    if (table.columnNames[c].equalsIgnoreCase(columns.get(i))) {
+                        projection[i] = c;
+                    }
+                }
+                if (projection[i] < 0) {
+                    throw new StorageException("Unknown column " + columns.get(i) + " for model: " + model);
+                }
+            }
+
+            scanColumns(model, table, projection, action);
+        } catch (IOException e) {
+            throw new StorageException("Error scanning columns for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the given columns row by row, touching no other column files
+     */
+    private void scanColumns(String model, Table table, int[] projection, Consumer<ProjectedRow> action) throws IOException {
+        try (ColumnCursor cursor = new ColumnCursor(model, table, projection, 0)) {
+            while (cursor.next()) {
+                action.accept(cursor.row);
+            }
+        }
+    }
+
+    /**
+     * Reads some columns of a table one row at a time, from a given row up
+     * to the number of rows they held when the cursor was opened
+     */
+    private class ColumnCursor implements AutoCloseable {
+        final long rows;
+        // Reused for every row
+        final ProjectedRow row;
+        private final Table table;
+        private final int[] projection;
+        private final DataInputStream[] inputs;
+        private final StringColumnReader[] strings;
+        private long read;
+
+        ColumnCursor(String model, Table table, int[] projection, int from) throws IOException {
+            this.table = table;
+            this.projection = projection;
+            int count = projection.length;
+            this.inputs = new DataInputStream[count];
+            this.strings = new StringColumnReader[count];
+            this.row = new ProjectedRow(count);
+            long rowCount = -1;
+
+            try {
+                for (int i = 0; i < count; i++) {
+                    String column = table.columnNames[projection[i]];
+                    ColumnType type = table.types[projection[i]];
+                    Path path = getColumnPath(model, column, type == ColumnType.STRING ? SLOT_EXTENSION : FIXED_EXTENSION);
+                    int width = type == ColumnType.STRING ? SLOT_SIZE : type.getWidth();
+
+                    inputs[i] = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+                    inputs[i].skipNBytes(Math.min((long) from * width, Files.size(path)));
+                    if (type == ColumnType.STRING) {
+                        strings[i] = new StringColumnReader(getColumnPath(model, column, DATA_EXTENSION));
+                    }
+                    rowCount = rowCount < 0 ? Files.size(path) / width : Math.min(rowCount, Files.size(path) / width);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+            this.rows = Math.max(rowCount - from, 0);
+        }
+
+        /**
+         * Reads the next row into {@link #row}
+         *
+         * @return false if every row has been read
+         */
+        boolean next() throws IOException {
+            if (read >= rows) {
+                return false;
+            }
+            for (int i = 0; i < projection.length; i++) {
+                switch (table.types[projection[i]]) {
+                    case STRING -> row.setString(i, strings[i].read(inputs[i].readLong(), inputs[i].readInt()));
+                    case INT -> row.setInt(i, inputs[i].readInt());
+                    case DOUBLE -> row.setDouble(i, inputs[i].readDouble());
+                    case DICTIONARY -> {
+                        int code = inputs[i].readInt();
+                        row.setInt(i, code);
+                        row.setString(i, table.dictionaries[projection[i]].decode(code));
+                    }
+                }
+            }
+            read++;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int i = 0; i < projection.length; i++) {
+                if (inputs[i] != null) {
+                    inputs[i].close();
+                }
+                if (strings[i] != null) {
+                    strings[i].close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads string values from a data file through a read-ahead window, so
+     * values written in order are served without a system call each
+     */
+    private static class StringColumnReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer window = ByteBuffer.allocate(READ_WINDOW_SIZE);
+        private long windowStart = 0;
+        private int windowLength = 0;
+
+        StringColumnReader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+
+        String read(long offset, int length) throws IOException {
+            if (length > READ_WINDOW_SIZE) {
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IOException("Unexpected end of column data");
+                    }
+                }
+                return new String(buffer.array(), 0, length, StandardCharsets.UTF_8);
+            }
+
+            if (offset < windowStart || offset + length > windowStart + windowLength) {
+                window.clear();
+                windowStart = offset;
+                windowLength = Math.max(channel.read(window, offset), 0);
+                if (windowLength < length) {
+                    throw new IOException("Unexpected end of column data");
+                }
+            }
+            return new String(window.array(), (int) (offset - windowStart), length, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Reusable parser for one comma separated record at a time. Fields are found
+ * by scanning the UTF-8 bytes in place and numbers are parsed straight from
+ * the bytes, so reading a numeric field does not create any objects; only
+ * {@link #getString(int)} allocates, and only for the field asked for.
+ *
+ * A parser keeps its buffers between records and is not thread-safe.
+ */
+public class CsvRecordParser {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Any 15 digit integer is exactly representable as a double
+    private static final int MAX_EXACT_DIGITS = 15;
+    // Outside the int range, so it cannot be a parsed value
+    private static final long NOT_AN_INT = Long.MIN_VALUE;
+
+    private byte[] scratch = new byte[256];
+    private byte[] bytes = scratch;
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int fieldCount;
+    private int recordStart;
+    private int recordEnd;
+
+    /**
+     * Points the parser at a record held in a byte array. The bytes are not
+     * copied, so they must not change while the fields are being read.
+     *
+     * @param source Array holding the record
+     * @param offset Position of the first byte of the record
+     * @param length Length of the record, without its line terminator
+     * @return This parser
+     */
+    public CsvRecordParser reset(byte[] source, int offset, int length) {
+        bytes = source;
+        tokenize(offset, offset + length);
+        return this;
+    }
+
+    /**
+     * Points the parser at a record held in a String, copying ASCII text into
+     * the parser's own buffer without allocating
+     *
+     * @param line The record
+     * @return This parser
+     */
+    public CsvRecordParser reset(String line) {
+        int length = line.length();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = line.getBytes(StandardCharsets.UTF_8);
+                return reset(encoded, 0, encoded.length);
+            }
+            scratch[i] = (byte) c;
+        }
+        bytes = scratch;
+        tokenize(0, length);
+        return this;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Decodes the whole record, without its line terminator
+     */
+    public String getRecord() {
+        return new String(bytes, recordStart, recordEnd - recordStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a field, without surrounding whitespace
+     *
+     * @param field The field index (0-based)
+     * @return The field value
+     */
+    public String getString(int field) {
+        checkField(field);
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a field with a value, ignoring case and surrounding whitespace,
+     * without decoding the field
+     *
+     * @param field The field index (0-based)
+     * @param value The value to compare with
+     * @return true if the field holds the value
+     */
+    public boolean fieldEqualsIgnoreCase(int field, String value) {
+        checkField(field);
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        String trimmed = value.trim();
+        if (end - start != trimmed.length()) {
+            // Non-ASCII text has more bytes than chars; decode to compare it exactly
+            return !isAscii(start, end) && getString(field).equalsIgnoreCase(trimmed);
+        }
+
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            int b = bytes[start + i] & 0xFF;
+            if (c >= 0x80 || b >= 0x80) {
+                return getString(field).equalsIgnoreCase(trimmed);
+            }
+            if (Character.toLowerCase(c) != Character.toLowerCase((char) b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a field with a value exactly, ignoring surrounding whitespace,
+     * without decoding the field
+     *
+     * @param field The field index (0-based)
+     * @param value The value to compare with
+     * @return true if the field holds the value
+     */
+    public boolean fieldEquals(int field, String value) {
+        checkField(field);
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        String trimmed = value.trim();
+        if (end - start != trimmed.length()) {
+            return !isAscii(start, end) && getString(field).equals(trimmed);
+        }
+
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            int b = bytes[start + i] & 0xFF;
+            if (c >= 0x80 || b >= 0x80) {
+                return getString(field).equals(trimmed);
+            }
+            if (c != b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a field ends with a suffix, ignoring case and surrounding
+     * whitespace, without decoding the field
+     *
+     * @param field The field index (0-based)
+     * @param suffix The suffix to look for
+     * @return true if the field ends with the suffix
+     */
+    public boolean fieldEndsWithIgnoreCase(int field, String suffix) {
+        checkField(field);
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        if (!isAscii(start, end) || !isAscii(suffix)) {
+            return getString(field).toLowerCase(Locale.ROOT).endsWith(suffix.toLowerCase(Locale.ROOT));
+        }
+        if (end - start < suffix.length()) {
+            return false;
+        }
+
+        int offset = end - suffix.length();
+        for (int i = 0; i < suffix.length(); i++) {
+            char c = suffix.charAt(i);
+            if (Character.toLowerCase(c) != Character.toLowerCase((char) bytes[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a field as a decimal integer
+     *
+     * @param field The field index (0-based)
+     * @return The value
+     * @throws NumberFormatException If the field is not an integer
+     */
+    public int getInt(int field) {
+        long value = parseInt(field);
+        if (value == NOT_AN_INT) {
+            int start = trimStart(field);
+            throw invalidNumber(field, start, trimEnd(field, start));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as a decimal integer without throwing, for bulk paths
+     * where invalid values are common
+     *
+     * @param field The field index (0-based)
+     * @param invalid The value to return if the field is not an integer
+     * @return The value, or invalid
+     */
+    public int tryGetInt(int field, int invalid) {
+        long value = parseInt(field);
+        return value == NOT_AN_INT ? invalid : (int) value;
+    }
+
+    /**
+     * @return The value of the field, or NOT_AN_INT if it is not an integer
+     */
+    private long parseInt(int field) {
+        checkField(field);
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            return NOT_AN_INT;
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_AN_INT;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return NOT_AN_INT;
+            }
+        }
+
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? NOT_AN_INT : value;
+    }
+
+    /**
+     * Parses a field as a decimal number. Plain decimals with up to 15
+     * significant digits are computed from the bytes with a single, correctly
+     * rounded division; anything else (exponents, longer values) falls back
+     * to {@link Double#parseDouble(String)}.
+     *
+     * @param field The field index (0-based)
+     * @return The value
+     * @throws NumberFormatException If the field is not a number
+     */
+    public double getDouble(int field) {
+        return parseDouble(field, true);
+    }
+
+    /**
+     * Parses a field as a decimal number without throwing, for bulk paths
+     * where invalid values are common
+     *
+     * @param field The field index (0-based)
+     * @return The value, or NaN if the field is not a number or has no digits (such as "Infinity")
+     */
+    public double tryGetDouble(int field) {
+        return parseDouble(field, false);
+    }
+
+    private double parseDouble(int field, boolean strict) {
+        checkField(field);
+        int start = trimStart(field);
+        int end = trimEnd(field, start);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        boolean sawDigit = false;
+        for (; i < end; i++) {
+            byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                sawDigit = true;
+                if (mantissa > 0 || b != '0') {
+                    significantDigits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (fraction) {
+                    fractionDigits++;
+                }
+                if (significantDigits > MAX_EXACT_DIGITS || fractionDigits >= POWERS_OF_TEN.length) {
+                    return parseSlow(start, end, strict);
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return parseSlow(start, end, strict);
+            }
+        }
+        if (!sawDigit) {
+            return parseSlow(start, end, strict);
+        }
+
+        // Both operands are exact doubles, so the division rounds correctly
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private void tokenize(int from, int to) {
+        fieldCount = 0;
+        int fieldStart = from;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == ',') {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        addField(fieldStart, to);
+        recordStart = from;
+        recordEnd = to;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = Math.max(start, end);
+        fieldCount++;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + field + " out of bounds for record with " + fieldCount + " fields");
+        }
+    }
+
+    private int trimStart(int field) {
+        int start = starts[field];
+        while (start < ends[field] && isWhitespace(bytes[start])) {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int field, int start) {
+        int end = ends[field];
+        while (end > start && isWhitespace(bytes[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+
+    private boolean isAscii(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private double parseSlow(int start, int end, boolean strict) {
+        if (!strict && !containsDigit(start, end)) {
+            // Not a number, and not worth an exception to find out
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            if (strict) {
+                throw e;
+            }
+            return Double.NaN;
+        }
+    }
+
+    private boolean containsDigit(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] >= '0' && bytes[i] <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private NumberFormatException invalidNumber(int field, int start, int end) {
+        return new NumberFormatException("For input string: \"" + new String(bytes, start, end - start, StandardCharsets.UTF_8)
+                + "\" in field " + field);
+    }
+}
@@ -0,0 +1,120 @@
+package models;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import utils.Benchmark;
+
+/**
+ * Compares {@link CsvRecordParser} with {@code String.split} plus
+ * {@code parseInt}/{@code parseDouble} on generated student records.
+ *
+ * The records come from a fixed seed, so every run reads the same data; each
+ * pair of cases must report the same checksum. Run with
+ * {@code java -cp target/classes models.CsvRecordParserBenchmark [rows]}.
+ */
+public class CsvRecordParserBenchmark {
+    private static final int DEFAULT_ROWS = 1_000_000;
+    private static final String[] COURSES = {
+            "Computer Science", "Mathematics", "Physics", "Software Engineering", "Biologie Générale"
+    };
+
+    public static void main(String[] args) throws Exception {
+        int rows = Benchmark.intArg(args, 0, DEFAULT_ROWS);
+        List<String> lines = generate(rows, new Random(42));
+        Path file = Files.createTempFile("csv-parser-benchmark", ".csv");
+
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            System.out.printf("%,d records, %,d bytes%n", rows, Files.size(file));
+
+            CsvRecordParser parser = new CsvRecordParser();
+
+            // Age and GPA of every record, as the statistics read them
+            Benchmark.run("numbers: split", rows, () -> {
+                long sum = 0;
+                for (String line : lines) {
+                    String[] fields = line.split(",");
+                    sum += Integer.parseInt(fields[3].trim()) + (long) (Double.parseDouble(fields[5].trim()) * 100);
+                }
+                return sum;
+            });
+            Benchmark.run("numbers: parser", rows, () -> {
+                long sum = 0;
+                for (String line : lines) {
+                    parser.reset(line);
+                    sum += parser.getInt(3) + (long) (parser.getDouble(5) * 100);
+                }
+                return sum;
+            });
+
+            // Whole students, as StudentService.deserialize builds them
+            Benchmark.run("students: split", rows, () -> {
+                long sum = 0;
+                for (String line : lines) {
+                    String[] fields = line.split(",");
+                    Student student = new Student(fields[0].trim(), fields[1].trim(), fields[2].trim(),
+                            Integer.parseInt(fields[3].trim()), fields[4].trim(), Double.parseDouble(fields[5].trim()));
+                    sum += student.getAge() + student.getEmail().length();
+                }
+                return sum;
+            });
+            Benchmark.run("students: parser", rows, () -> {
+                long sum = 0;
+                for (String line : lines) {
+                    parser.reset(line);
+                    Student student = new Student(parser.getString(0), parser.getString(1), parser.getString(2),
+                            parser.getInt(3), parser.getString(4), parser.getDouble(5));
+                    sum += student.getAge() + student.getEmail().length();
+                }
+                return sum;
+            });
+
+            // Numbers straight from the file, as the index builds read it
+            Benchmark.run("file: reader + split", rows, () -> {
+                long sum = 0;
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split(",");
+                        sum += Integer.parseInt(fields[3].trim()) + (long) (Double.parseDouble(fields[5].trim()) * 100);
+                    }
+                }
+                return sum;
+            });
+            Benchmark.run("file: mapped + parser", rows, () -> {
+                long[] sum = {0};
+                MappedFileReader.forEachRecord(file, parser,
+                        record -> sum[0] += record.getInt(3) + (long) (record.getDouble(5) * 100));
+                return sum[0];
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<String> generate(int rows, Random random) {
+        List<String> lines = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            lines.add(String.join(",",
+                    Long.toString(7_000_000_000_000_000L + i),
+                    "Student " + i,
+                    "student" + i + "@example.com",
+                    Integer.toString(18 + random.nextInt(30)),
+                    COURSES[random.nextInt(COURSES.length)],
+                    String.format("%.2f", random.nextInt(401) / 100.0)));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,15 @@
+package models;
+
+/**
+ * When appended records are forced to disk
+ */
+public enum Durability {
+    /** fsync before each write returns; concurrent writers share one fsync */
+    FSYNC_PER_WRITE,
+
+    /** fsync in the background every {@link StorageConfig#getFsyncIntervalMillis()} milliseconds */
+    FSYNC_INTERVAL,
+
+    /** Leave flushing to the operating system */
+    OS_BUFFERED
+}
@@ -1,21 +1,53 @@
 package models;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import customexceptions.StorageException;
 
+/**
+ * CSV file storage, safe for use from many threads. Each model has its own
+ * read/write lock: lookups and scans share it, while writes take it
+ * exclusively. With fsync durability the sync happens after the lock is
+ * released, so concurrent adders share one fsync.
+ */
 public class FileStorage<T> implements Storage<T> {
 
+    private static final int LINE_SEPARATOR_LENGTH =
+            System.lineSeparator().getBytes(StandardCharsets.UTF_8).length;
+    private static final String SORTED_INDEX_EXTENSION = ".sorted";
+
     private final StorageConfig config;
+    private final Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+    private final Map<String, OffsetIndex> offsetIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, UniqueColumnIndex>> columnIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, SecondaryIndex>> secondaryIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, SortedIndex>> sortedIndexes = new ConcurrentHashMap<>();
+    private final Map<String, GroupCommitLog> appendLogs = new ConcurrentHashMap<>();
 
     /**
      * Creates a new FileStorage with default configuration
@@ -56,35 +88,256 @@ public class FileStorage<T> implements Storage<T> {
         }
     }
 
+    /**
+     * Gets the ID to byte offset index for a model, building it on first use
+     *
+     * @param model The model name
+     * @return The offset index for the model
+     */
+    private OffsetIndex getOffsetIndex(String model) {
+        return offsetIndexes.computeIfAbsent(model, k -> {
+            try {
+                return OffsetIndex.build(getFilePath(model));
+            } catch (IOException e) {
+                throw new StorageException("Error building index for model: " + model, e);
+            }
+        });
+    }
+
+    /**
+     * Gets the read/write lock guarding a model's file and indexes
+     *
+     * @param model The model name
+     * @return The lock for the model
+     */
+    private ReadWriteLock getLock(String model) {
+        return locks.computeIfAbsent(model, k -> new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Gets the open append log for a model's file. Adds go straight to the
+     * end of the CSV file, so the file itself serves as the write-ahead log.
+     *
+     * @param model The model name
+     * @return The append log
+     * @throws IOException If the file cannot be opened
+     */
+    private GroupCommitLog getAppendLog(String model) throws IOException {
+        // Only called with the model's write lock held
+        GroupCommitLog log = appendLogs.get(model);
+        if (log == null) {
+            ensureDirectoryExists();
+            log = new GroupCommitLog(getFilePath(model), config.getDurability(), config.getFsyncIntervalMillis());
+            appendLogs.put(model, log);
+        }
+        return log;
+    }
+
+    /**
+     * Closes the append log of a model before its file is rewritten
+     */
+    private void closeAppendLog(String model) throws IOException {
+        GroupCommitLog log = appendLogs.remove(model);
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    /**
+     * Gets the unique index for a column of a model, building it on first use.
+     * Once built it is kept up to date by every write to the model.
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @return The column index
+     */
+    private UniqueColumnIndex getColumnIndex(String model, int columnIndex) {
+        return columnIndexes.computeIfAbsent(model, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(columnIndex, k -> {
+                    try {
+                        return UniqueColumnIndex.build(getFilePath(model), columnIndex);
+                    } catch (IOException e) {
+                        throw new StorageException("Error building index for model: " + model, e);
+                    }
+                });
+    }
+
+    /**
+     * Gets the secondary index for a column of a model, building it on first use.
+     * Once built it is kept up to date by every write to the model.
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @return The secondary index
+     */
+    private SecondaryIndex getSecondaryIndex(String model, int columnIndex) {
+        return secondaryIndexes.computeIfAbsent(model, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(columnIndex, k -> {
+                    try {
+                        return SecondaryIndex.build(getFilePath(model), columnIndex);
+                    } catch (IOException e) {
+                        throw new StorageException("Error building index for model: " + model, e);
+                    }
+                });
+    }
+
+    /**
+     * Gets the sorted index for a numeric column of a model, on first use
+     * loading the one saved by {@link #saveIndexes()} if the model file has
+     * not changed since, or else building it. After that it is kept up to
+     * date by every write to the model.
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @return The sorted index
+     */
+    private SortedIndex getSortedIndex(String model, int columnIndex) {
+        return sortedIndexes.computeIfAbsent(model, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(columnIndex, k -> {
+                    try {
+                        SortedIndex saved = SortedIndex.load(getSortedIndexPath(model, columnIndex),
+                                getFilePath(model), columnIndex);
+                        return saved != null ? saved : SortedIndex.build(getFilePath(model), columnIndex);
+                    } catch (IOException e) {
+                        throw new StorageException("Error building index for model: " + model, e);
+                    }
+                });
+    }
+
+    private Path getSortedIndexPath(String model, int columnIndex) {
+        return config.getPathForModel(model, "." + columnIndex + SORTED_INDEX_EXTENSION);
+    }
+
+    /**
+     * Saves the sorted indexes in use next to their model files, so the next
+     * run loads them instead of scanning the files again. Saving takes each
+     * model's read lock, so call it when done writing, such as before exiting.
+     */
+    public void saveIndexes() {
+        for (Map.Entry<String, Map<Integer, SortedIndex>> entry : sortedIndexes.entrySet()) {
+            String model = entry.getKey();
+            Path filePath = getFilePath(model);
+            ReadWriteLock lock = getLock(model);
+            lock.readLock().lock();
+            try {
+                if (Files.exists(filePath)) {
+                    for (SortedIndex index : entry.getValue().values()) {
+                        index.save(getSortedIndexPath(model, index.getColumnIndex()), filePath);
+                    }
+                }
+            } catch (IOException e) {
+                throw new StorageException("Error saving indexes for model: " + model, e);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds a newly written line to every column index built for the model
+     */
+    private void indexColumns(String model, String line) {
+        Map<Integer, UniqueColumnIndex> indexes = columnIndexes.get(model);
+        if (indexes != null) {
+            for (UniqueColumnIndex index : indexes.values()) {
+                index.add(line);
+            }
+        }
+
+        Map<Integer, SecondaryIndex> secondary = secondaryIndexes.get(model);
+        if (secondary != null) {
+            for (SecondaryIndex index : secondary.values()) {
+                index.add(line);
+            }
+        }
+
+        Map<Integer, SortedIndex> sorted = sortedIndexes.get(model);
+        if (sorted != null) {
+            for (SortedIndex index : sorted.values()) {
+                index.add(line);
+            }
+        }
+    }
+
+    /**
+     * Extracts the ID (first column) from a record line
+     */
+    private static String idOf(String line) {
+        int comma = line.indexOf(',');
+        return comma < 0 ? line : line.substring(0, comma);
+    }
+
+    /**
+     * Rewrites a model file with the given lines and rebuilds its offset index
+     * from the lines written, so the next lookup does not need a rescan
+     *
+     * @param model The model name
+     * @param lines The lines to write, header first
+     * @throws IOException If the file cannot be written
+     */
+    private void rewriteLines(String model, List<String> lines) throws IOException {
+        OffsetIndex index = new OffsetIndex();
+        long offset = 0;
+        closeAppendLog(model);
+
+        // Written beside the file and moved over it, so open streams keep reading the old one
+        Path filePath = getFilePath(model);
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                writer.write(line);
+                writer.newLine();
+
+                if (i > 0) {
+                    index.put(idOf(line), offset);
+                }
+                offset += line.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR_LENGTH;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        offsetIndexes.put(model, index);
+
+        Map<Integer, UniqueColumnIndex> indexes = columnIndexes.get(model);
+        if (indexes != null) {
+            indexes.replaceAll((column, old) -> UniqueColumnIndex.build(lines, column));
+        }
+        Map<Integer, SecondaryIndex> secondary = secondaryIndexes.get(model);
+        if (secondary != null) {
+            secondary.replaceAll((column, old) -> SecondaryIndex.build(lines, column));
+        }
+        Map<Integer, SortedIndex> sorted = sortedIndexes.get(model);
+        if (sorted != null) {
+            sorted.replaceAll((column, old) -> SortedIndex.build(lines, column));
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void add(Map<String, Object> map) {
         String model = map.get("model").toString();
         T obj = (T) map.get("obj");
         String fileHeader = map.get("fileHeader").toString();
-        Path filePath = getFilePath(model);
-        
-        ensureDirectoryExists();
+        String line = obj.toString();
+        ReadWriteLock lock = getLock(model);
 
         try {
-            boolean fileExists = Files.exists(filePath);
-
-            // If file doesn't exist, write the header first
-            if (!fileExists) {
-                try (BufferedWriter writer = Files.newBufferedWriter(filePath, 
-                        StandardCharsets.UTF_8)) {
-                    writer.write(fileHeader);
-                    writer.newLine();
-                }
-            }
-
-            // Append the new line to the file using BufferedWriter for better performance
-            try (BufferedWriter writer = Files.newBufferedWriter(filePath, 
-                    StandardCharsets.UTF_8, 
-                    StandardOpenOption.APPEND)) {
-                writer.write(obj.toString());
-                writer.newLine();
+            GroupCommitLog log;
+            lock.writeLock().lock();
+            try {
+                // Header and record go out in one write if the file is new
+                OffsetIndex index = getOffsetIndex(model);
+                log = getAppendLog(model);
+                long offset = log.appendLines(fileHeader, List.of(line));
+                index.put(idOf(line), offset);
+                indexColumns(model, line);
+            } finally {
+                lock.writeLock().unlock();
             }
+            log.commit();
         } catch (IOException e) {
             throw new StorageException("Error adding record", e);
         }
@@ -97,16 +350,35 @@ public class FileStorage<T> implements Storage<T> {
             return "";
         }
 
-        try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith(id + ",")) {
-                    return line;
-                }
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            long offset = getOffsetIndex(model).offsetOf(id);
+            if (offset < 0) {
+                return "";
+            }
+
+            String line = OffsetIndex.readLineAt(filePath, offset);
+            if (line != null && line.startsWith(id + ",")) {
+                return line;
             }
-            return "";
         } catch (IOException e) {
             throw new StorageException("Error retrieving record with ID: " + id, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // The file was changed behind our back, rebuild the index once and retry
+        lock.writeLock().lock();
+        try {
+            OffsetIndex index = OffsetIndex.build(filePath);
+            offsetIndexes.put(model, index);
+            long offset = index.offsetOf(id);
+            return offset < 0 ? "" : OffsetIndex.readLineAt(filePath, offset);
+        } catch (IOException e) {
+            throw new StorageException("Error retrieving record with ID: " + id, e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -117,21 +389,19 @@ public class FileStorage<T> implements Storage<T> {
             return;
         }
         
+        ReadWriteLock lock = getLock(model);
+        lock.writeLock().lock();
         try {
             List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
             List<String> updatedLines = lines.stream()
                     .filter(line -> !line.startsWith(id + ","))
                     .collect(Collectors.toList());
             
-            // Use BufferedWriter for better performance
-            try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-                for (String line : updatedLines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
+            rewriteLines(model, updatedLines);
         } catch (IOException e) {
             throw new StorageException("Error removing record with ID: " + id, e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -142,6 +412,8 @@ public class FileStorage<T> implements Storage<T> {
             throw new StorageException("File not found for model: " + model);
         }
         
+        ReadWriteLock lock = getLock(model);
+        lock.writeLock().lock();
         try {
             List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
             boolean found = false;
@@ -158,15 +430,11 @@ public class FileStorage<T> implements Storage<T> {
                 throw new StorageException("Record with ID " + id + " not found");
             }
             
-            // Use BufferedWriter for better performance
-            try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-                for (String line : lines) {
-                    writer.write(line);
-                    writer.newLine();
-                }
-            }
+            rewriteLines(model, lines);
         } catch (IOException e) {
             throw new StorageException("Error updating record with ID: " + id, e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
@@ -177,10 +445,156 @@ public class FileStorage<T> implements Storage<T> {
             return Collections.emptyList();
         }
         
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
         try {
+            if (config.getReadMode() == ReadMode.MEMORY_MAPPED) {
+                List<String> lines = new ArrayList<>();
+                MappedFileReader.forEachLine(filePath, lines::add);
+                return lines;
+            }
             return Files.readAllLines(filePath, StandardCharsets.UTF_8);
         } catch (IOException e) {
             throw new StorageException("Error retrieving all records for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void scan(String model, Consumer<String> action) {
+        Path filePath = getFilePath(model);
+        if (!Files.exists(filePath)) {
+            return;
+        }
+
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            if (config.getReadMode() == ReadMode.MEMORY_MAPPED) {
+                boolean[] header = {true};
+                MappedFileReader.forEachLine(filePath, line -> {
+                    if (header[0]) {
+                        header[0] = false;
+                    } else {
+                        action.accept(line);
+                    }
+                });
+                return;
+            }
+
+            try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
+                reader.readLine(); // Skip header line
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    action.accept(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error scanning records for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams the model file line by line as it was when the stream was
+     * opened. Only opening the file and taking its length happen under the
+     * model's read lock: appends land past that length and rewrites replace
+     * the file rather than changing it, so the stream never sees them, and
+     * its consumer is free to read and write the model while it runs. In
+     * memory-mapped mode the stream splits the file into byte ranges when
+     * made parallel, so each worker reads its own part of the file.
+     */
+    @Override
+    public Stream<String> stream(String model) {
+        Path filePath = getFilePath(model);
+        if (!Files.exists(filePath)) {
+            return Stream.empty();
+        }
+
+        FileChannel channel = null;
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+            long length = channel.size();
+
+            if (config.getReadMode() == ReadMode.MEMORY_MAPPED) {
+                MappedLineSpliterator lines = new MappedLineSpliterator(channel, 0, length);
+                lines.tryAdvance(header -> { }); // Skip header line
+                return StreamSupport.stream(lines, false).onClose(closing(model, channel));
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new LimitedInputStream(Channels.newInputStream(channel), length), StandardCharsets.UTF_8));
+            reader.readLine(); // Skip header line
+            return reader.lines().onClose(closing(model, reader));
+        } catch (IOException | UncheckedIOException e) {
+            closeQuietly(channel);
+            throw new StorageException("Error streaming records for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes what a stream reads from when the stream is closed
+     */
+    private static Runnable closing(String model, Closeable source) {
+        return () -> {
+            try {
+                source.close();
+            } catch (IOException e) {
+                throw new StorageException("Error closing records stream for model: " + model, e);
+            }
+        };
+    }
+
+    /**
+     * Reads a file no further than the length it had when a stream was opened
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file: " + e.getMessage());
         }
     }
 
@@ -190,28 +604,29 @@ public class FileStorage<T> implements Storage<T> {
             return;
         }
         
-        Path filePath = getFilePath(model);
-        ensureDirectoryExists();
+        List<String> lines = new ArrayList<>(objects.size());
+        for (T obj : objects) {
+            lines.add(obj.toString());
+        }
+        ReadWriteLock lock = getLock(model);
         
         try {
-            boolean fileExists = Files.exists(filePath);
-            
-            try (BufferedWriter writer = Files.newBufferedWriter(filePath, 
-                    StandardCharsets.UTF_8, 
-                    fileExists ? StandardOpenOption.APPEND : StandardOpenOption.CREATE)) {
-                    
-                // Write header if new file
-                if (!fileExists) {
-                    writer.write(fileHeader);
-                    writer.newLine();
-                }
-                
-                // Write all objects in a single operation
-                for (T obj : objects) {
-                    writer.write(obj.toString());
-                    writer.newLine();
+            GroupCommitLog log;
+            lock.writeLock().lock();
+            try {
+                // Write all objects in a single operation, then index each line
+                OffsetIndex index = getOffsetIndex(model);
+                log = getAppendLog(model);
+                long offset = log.appendLines(fileHeader, lines);
+                for (String line : lines) {
+                    index.put(idOf(line), offset);
+                    indexColumns(model, line);
+                    offset += line.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR_LENGTH;
                 }
+            } finally {
+                lock.writeLock().unlock();
             }
+            log.commit();
         } catch (IOException e) {
             throw new StorageException("Error during batch add operation", e);
         }
@@ -228,6 +643,10 @@ public class FileStorage<T> implements Storage<T> {
             throw new StorageException("File not found for model: " + model);
         }
         
+        // Work on a copy so the caller's map is left untouched
+        Map<String, T> pending = new HashMap<>(objects);
+        ReadWriteLock lock = getLock(model);
+        lock.writeLock().lock();
         try {
             List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
             boolean anyUpdates = false;
@@ -241,9 +660,9 @@ public class FileStorage<T> implements Storage<T> {
                 String line = lines.get(i);
                 String id = line.substring(0, line.indexOf(','));
                 
-                if (objects.containsKey(id)) {
-                    updatedLines.add(objects.get(id).toString());
-                    objects.remove(id); // Remove processed object
+                if (pending.containsKey(id)) {
+                    updatedLines.add(pending.get(id).toString());
+                    pending.remove(id); // Remove processed object
                     anyUpdates = true;
                 } else {
                     updatedLines.add(line);
@@ -255,19 +674,56 @@ public class FileStorage<T> implements Storage<T> {
             }
             
             // Write back the updated lines
-            try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
-                for (String line : updatedLines) {
-                    writer.write(line);
-                    writer.newLine();
+            rewriteLines(model, updatedLines);
+        } catch (IOException e) {
+            throw new StorageException("Error during batch update operation", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the given records with a single rewrite of the file, where
+     * removing them one by one would read and rewrite it once per record
+     */
+    @Override
+    public void batchRemove(String model, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        Path filePath = getFilePath(model);
+        if (!Files.exists(filePath)) {
+            return;
+        }
+
+        Set<String> removed = new HashSet<>(ids);
+        ReadWriteLock lock = getLock(model);
+        lock.writeLock().lock();
+        try {
+            List<String> lines = Files.readAllLines(filePath, StandardCharsets.UTF_8);
+            List<String> updatedLines = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                // First line is the header
+                if (i == 0 || !removed.contains(idOf(lines.get(i)))) {
+                    updatedLines.add(lines.get(i));
                 }
             }
+
+            if (updatedLines.size() < lines.size()) {
+                rewriteLines(model, updatedLines);
+            }
         } catch (IOException e) {
-            throw new StorageException("Error during batch update operation", e);
+            throw new StorageException("Error during batch remove operation", e);
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     /**
-     * Checks if a value already exists in a specific column
+     * Checks if a value already exists in a specific column. The comparison is
+     * trimmed and case-insensitive, and is answered from an in-memory index
+     * that is built on the first call for the column.
      *
      * @param model The model name
      * @param columnValue The value to check
@@ -275,39 +731,372 @@ public class FileStorage<T> implements Storage<T> {
      * @param excludeId Optional ID to exclude from the check (for updates)
      * @return true if the value exists, false otherwise
      */
+    @Override
     public boolean valueExistsInColumn(String model, String columnValue, int columnIndex, String... excludeId) {
+        if (!Files.exists(getFilePath(model))) {
+            return false;
+        }
+
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            return getColumnIndex(model, columnIndex)
+                    .contains(columnValue, excludeId.length > 0 ? excludeId[0] : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Answered from a secondary index on the column, built on the first call
+     */
+    @Override
+    public Set<String> distinctValues(String model, int columnIndex) {
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            return new LinkedHashSet<>(getSecondaryIndex(model, columnIndex).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Looks the matching IDs up in a secondary index on the column and reads
+     * only their lines, in file order
+     */
+    @Override
+    public void scanWhere(String model, int columnIndex, String value, Consumer<String> action) {
+        List<String> matches = readIndexed(model, () -> getSecondaryIndex(model, columnIndex).idsOf(value), true);
+        if (matches == null) {
+            Storage.super.scanWhere(model, columnIndex, value, action);
+        } else {
+            matches.forEach(action);
+        }
+    }
+
+    /**
+     * Walks a sorted index on the column and reads only the matching lines
+     */
+    @Override
+    public void scanRange(String model, int columnIndex, double min, double max, Consumer<String> action) {
+        List<String> matches = readIndexed(model, () -> getSortedIndex(model, columnIndex).idsInRange(min, max), false);
+        if (matches == null) {
+            Storage.super.scanRange(model, columnIndex, min, max, action);
+        } else {
+            matches.forEach(action);
+        }
+    }
+
+    @Override
+    public List<String> top(String model, int columnIndex, int n) {
+        List<String> matches = readIndexed(model, () -> getSortedIndex(model, columnIndex).topIds(n), false);
+        return matches == null ? Storage.super.top(model, columnIndex, n) : matches;
+    }
+
+    /**
+     * Answered from a sorted index on the column without reading the file
+     */
+    @Override
+    public long countBelow(String model, int columnIndex, double value) {
+        if (!Files.exists(getFilePath(model))) {
+            return 0;
+        }
+
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            return getSortedIndex(model, columnIndex).countBelow(value);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String atRank(String model, int columnIndex, long rank) {
+        List<String> matches = readIndexed(model, () -> {
+            String id = getSortedIndex(model, columnIndex).idAt(rank);
+            return id == null ? List.of() : List.of(id);
+        }, false);
+        if (matches == null) {
+            return Storage.super.atRank(model, columnIndex, rank);
+        }
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Drives the query from the index on whichever EQUALS or BETWEEN condition
+     * selects the fewest records, building indexes on first use, and checks
+     * the other conditions on the records it reads. If no condition narrows
+     * the model down to a quarter of its records, one sequential pass over the
+     * raw bytes is cheaper than reading the matches one by one, so the file is
+     * scanned instead, stopping at the limit.
+     */
+    @Override
+    public void query(Query query, Consumer<String> action) {
+        String model = query.getModel();
+        if (query.getLimit() == 0 || !Files.exists(getFilePath(model))) {
+            return;
+        }
+
+        Query.Condition driver = chooseIndexedCondition(query);
+        if (driver != null) {
+            // With no other conditions the index alone decides, so only the first matches are read
+            int readLimit = query.getConditions().size() == 1 ? query.getLimit() : Integer.MAX_VALUE;
+            List<String> candidates = readIndexed(model, () -> idsMatching(model, driver), true, readLimit);
+            if (candidates != null) {
+                CsvRecordParser record = new CsvRecordParser();
+                int found = 0;
+                for (String line : candidates) {
+                    if (query.matches(record.reset(line))) {
+                        action.accept(query.project(record));
+                        if (++found == query.getLimit()) {
+                            return;
+                        }
+                    }
+                }
+                return;
+            }
+        }
+        scanQuery(query, action);
+    }
+
+    /**
+     * Picks the indexable condition expected to select the fewest records
+     *
+     * @return The condition, or null if a full scan is cheaper
+     */
+    private Query.Condition chooseIndexedCondition(Query query) {
+        String model = query.getModel();
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            Query.Condition best = null;
+            long bestCount = Long.MAX_VALUE;
+            for (Query.Condition condition : query.getConditions()) {
+                long count = switch (condition.getType()) {
+                    case EQUALS -> getSecondaryIndex(model, condition.getColumn()).idsOf(condition.getValue()).size();
+                    case BETWEEN -> getSortedIndex(model, condition.getColumn())
+                            .countBetween(condition.getMin(), condition.getMax());
+                    case ENDS_WITH_IGNORE_CASE -> Long.MAX_VALUE;
+                };
+                if (count < bestCount) {
+                    best = condition;
+                    bestCount = count;
+                }
+            }
+            return best != null && bestCount * 4 <= getOffsetIndex(model).size() ? best : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up the IDs matching an EQUALS or BETWEEN condition in its index
+     */
+    private Collection<String> idsMatching(String model, Query.Condition condition) {
+        if (condition.getType() == Query.ConditionType.EQUALS) {
+            return getSecondaryIndex(model, condition.getColumn()).idsOf(condition.getValue());
+        }
+        return getSortedIndex(model, condition.getColumn()).idsInRange(condition.getMin(), condition.getMax());
+    }
+
+    /**
+     * Checks the query against the raw bytes of every record, decoding only
+     * the matches, until the limit is reached
+     */
+    private void scanQuery(Query query, Consumer<String> action) {
+        String model = query.getModel();
+        Path filePath = getFilePath(model);
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            boolean[] header = {true};
+            int[] found = {0};
+            MappedFileReader.forEachRecordWhile(filePath, new CsvRecordParser(), record -> {
+                if (header[0]) {
+                    header[0] = false;
+                } else if (query.matches(record)) {
+                    action.accept(query.project(record));
+                    return ++found[0] < query.getLimit();
+                }
+                return true;
+            });
+        } catch (IOException e) {
+            throw new StorageException("Error querying records for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Page page(String model, PageCursor cursor, int pageSize) {
+        return readPage(model, cursor, pageSize, false);
+    }
+
+    @Override
+    public Page pageBefore(String model, PageCursor cursor, int pageSize) {
+        return readPage(model, cursor, pageSize, true);
+    }
+
+    /**
+     * Seeks to the cursor, moving back a page first when paging backwards,
+     * and reads the page plus one line to find where the next page starts
+     *
+     * @param model The model name
+     * @param cursor The cursor, or null for the first page (or the end when paging backwards)
+     * @param pageSize The maximum number of records on the page
+     * @param before Whether to read the page ending at the cursor
+     * @return The page
+     */
+    private Page readPage(String model, PageCursor cursor, int pageSize, boolean before) {
+        Path filePath = getFilePath(model);
+        if (pageSize <= 0 || !Files.exists(filePath)) {
+            return new Page(new ArrayList<>(), null, null, false);
+        }
+
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            // First line after the header
+            long first = PagedFileReader.nextLineStart(channel, 1);
+            long position;
+            if (cursor == null) {
+                position = before ? channel.size() : first;
+            } else {
+                position = locate(model, channel, cursor, first);
+            }
+            if (before) {
+                position = PagedFileReader.lineStartBefore(channel, position, first, pageSize);
+            }
+
+            List<PagedFileReader.Line> lines = PagedFileReader.readForward(channel, position, pageSize + 1);
+            List<String> records = new ArrayList<>(pageSize);
+            for (int i = 0; i < Math.min(pageSize, lines.size()); i++) {
+                records.add(lines.get(i).getText());
+            }
+            PageCursor start = lines.isEmpty() ? null : cursorOf(lines.get(0));
+            PageCursor next = lines.size() > pageSize ? cursorOf(lines.get(pageSize)) : null;
+            return new Page(records, start, next, position > first);
+        } catch (IOException e) {
+            throw new StorageException("Error reading page for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the offset a cursor points to: its recorded offset if its record
+     * is still there, else wherever the offset index has moved the record to.
+     * If the record is gone, paging continues from the line at or after the
+     * recorded offset.
+     */
+    private long locate(String model, FileChannel channel, PageCursor cursor, long first) throws IOException {
+        long offset = cursor.getPosition();
+        if (offset >= first && offset < channel.size()) {
+            List<PagedFileReader.Line> lines = PagedFileReader.readForward(channel, offset, 1);
+            if (!lines.isEmpty() && lines.get(0).getText().startsWith(cursor.getId() + ",")) {
+                return offset;
+            }
+        }
+
+        long indexed = getOffsetIndex(model).offsetOf(cursor.getId());
+        if (indexed >= 0) {
+            return indexed;
+        }
+        return Math.max(first, PagedFileReader.nextLineStart(channel, Math.min(offset, channel.size())));
+    }
+
+    private static PageCursor cursorOf(PagedFileReader.Line line) {
+        return new PageCursor(line.getOffset(), idOf(line.getText()));
+    }
+
+    /**
+     * Reads the records picked by an index lookup through the offset index.
+     * If the file was changed behind our back the indexes of the model are
+     * dropped, so they are rebuilt on next use, and the caller falls back to
+     * a scan.
+     *
+     * @param model The model name
+     * @param lookup Gets the IDs to read, called with the read lock held
+     * @param fileOrder Whether to return the records in file order rather than lookup order
+     * @return The records, or null if the indexes no longer match the file
+     */
+    private List<String> readIndexed(String model, Supplier<Collection<String>> lookup, boolean fileOrder) {
+        return readIndexed(model, lookup, fileOrder, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the records picked by an index lookup, up to a limit
+     *
+     * @see #readIndexed(String, Supplier, boolean)
+     */
+    private List<String> readIndexed(String model, Supplier<Collection<String>> lookup, boolean fileOrder, int limit) {
         Path filePath = getFilePath(model);
         if (!Files.exists(filePath)) {
-            return false;
+            return new ArrayList<>();
         }
-        
-        try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8)) {
-            String line;
-            boolean firstLine = true;
-            
-            while ((line = reader.readLine()) != null) {
-                // Skip header line
-                if (firstLine) {
-                    firstLine = false;
-                    continue;
+
+        List<String> matches = new ArrayList<>();
+        boolean consistent = true;
+        ReadWriteLock lock = getLock(model);
+        lock.readLock().lock();
+        try {
+            Collection<String> ids = lookup.get();
+            OffsetIndex index = getOffsetIndex(model);
+            long[] offsets = new long[ids.size()];
+            int count = 0;
+            for (String id : ids) {
+                long offset = index.offsetOf(id);
+                if (offset < 0) {
+                    consistent = false;
+                    break;
                 }
-                
-                String[] columns = line.split(",");
-                if (columns.length > columnIndex) {
-                    // Check if this row should be excluded (for update operations)
-                    if (excludeId.length > 0 && columns[0].equals(excludeId[0])) {
-                        continue;
-                    }
-                    
-                    // Compare the column value (trimmed)
-                    if (columns[columnIndex].trim().equalsIgnoreCase(columnValue.trim())) {
-                        return true; // Value exists
-                    }
+                offsets[count++] = offset;
+            }
+
+            if (consistent) {
+                if (fileOrder) {
+                    Arrays.sort(offsets);
+                }
+                if (limit < offsets.length) {
+                    offsets = Arrays.copyOf(offsets, limit);
                 }
+                OffsetIndex.readLinesAt(filePath, offsets, matches::add);
+                Set<String> wanted = ids instanceof Set<String> set ? set : new HashSet<>(ids);
+                consistent = matches.size() == offsets.length
+                        && matches.stream().allMatch(line -> wanted.contains(idOf(line)));
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error reading records for model: " + model, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (consistent) {
+            return matches;
+        }
+
+        lock.writeLock().lock();
+        try {
+            offsetIndexes.remove(model);
+            columnIndexes.remove(model);
+            secondaryIndexes.remove(model);
+            sortedIndexes.remove(model);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return null;
+    }
+
+    @Override
+    public void flush() {
+        try {
+            for (GroupCommitLog log : appendLogs.values()) {
+                log.flush();
             }
-            return false; // Value not found
         } catch (IOException e) {
-            throw new StorageException("Error checking if value exists: " + columnValue, e);
+            throw new StorageException("Error flushing storage", e);
         }
     }
 }
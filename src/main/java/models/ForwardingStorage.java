@@ -0,0 +1,130 @@
+package models;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Base class for storage decorators. Every call is passed to the wrapped
+ * storage; subclasses override only the operations they change.
+ */
+public abstract class ForwardingStorage<T> implements Storage<T> {
+
+    protected final Storage<T> delegate;
+
+    protected ForwardingStorage(Storage<T> delegate) {
+        this.delegate = delegate;
+    }
+
+    public Storage<T> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void add(Map<String, Object> map) {
+        delegate.add(map);
+    }
+
+    @Override
+    public String get(String model, String id) {
+        return delegate.get(model, id);
+    }
+
+    @Override
+    public void remove(String model, String id) {
+        delegate.remove(model, id);
+    }
+
+    @Override
+    public void update(String model, String id, T obj) {
+        delegate.update(model, id, obj);
+    }
+
+    @Override
+    public List<String> getAll(String model) {
+        return delegate.getAll(model);
+    }
+
+    @Override
+    public void scan(String model, Consumer<String> action) {
+        delegate.scan(model, action);
+    }
+
+    @Override
+    public Stream<String> stream(String model) {
+        return delegate.stream(model);
+    }
+
+    @Override
+    public void batchAdd(String model, List<T> objects, String fileHeader) {
+        delegate.batchAdd(model, objects, fileHeader);
+    }
+
+    @Override
+    public void batchUpdate(String model, Map<String, T> objects) {
+        delegate.batchUpdate(model, objects);
+    }
+
+    @Override
+    public void batchRemove(String model, Collection<String> ids) {
+        delegate.batchRemove(model, ids);
+    }
+
+    @Override
+    public boolean valueExistsInColumn(String model, String columnValue, int columnIndex, String... excludeId) {
+        return delegate.valueExistsInColumn(model, columnValue, columnIndex, excludeId);
+    }
+
+    @Override
+    public Set<String> distinctValues(String model, int columnIndex) {
+        return delegate.distinctValues(model, columnIndex);
+    }
+
+    @Override
+    public void scanWhere(String model, int columnIndex, String value, Consumer<String> action) {
+        delegate.scanWhere(model, columnIndex, value, action);
+    }
+
+    @Override
+    public void scanRange(String model, int columnIndex, double min, double max, Consumer<String> action) {
+        delegate.scanRange(model, columnIndex, min, max, action);
+    }
+
+    @Override
+    public List<String> top(String model, int columnIndex, int n) {
+        return delegate.top(model, columnIndex, n);
+    }
+
+    @Override
+    public long countBelow(String model, int columnIndex, double value) {
+        return delegate.countBelow(model, columnIndex, value);
+    }
+
+    @Override
+    public String atRank(String model, int columnIndex, long rank) {
+        return delegate.atRank(model, columnIndex, rank);
+    }
+
+    @Override
+    public void query(Query query, Consumer<String> action) {
+        delegate.query(query, action);
+    }
+
+    @Override
+    public Page page(String model, PageCursor cursor, int pageSize) {
+        return delegate.page(model, cursor, pageSize);
+    }
+
+    @Override
+    public Page pageBefore(String model, PageCursor cursor, int pageSize) {
+        return delegate.pageBefore(model, cursor, pageSize);
+    }
+
+    @Override
+    public void flush() {
+        delegate.flush();
+    }
+}
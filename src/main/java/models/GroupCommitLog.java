@@ -0,0 +1,204 @@
+package models;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only file of text lines that stays open between writes and
+ * forces them to disk according to a {@link Durability} setting.
+ *
+ * Writing and syncing are separate steps, so callers can append under their
+ * own lock and call {@link #commit()} after releasing it. With
+ * {@link Durability#FSYNC_PER_WRITE} the first writer waiting for a sync
+ * becomes the leader and forces everything written so far; writers that
+ * arrive meanwhile wait for the next sync, so concurrent appends share one
+ * fsync instead of paying for one each.
+ */
+public final class GroupCommitLog implements Closeable {
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final ScheduledExecutorService syncer;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private long written;
+    private long synced;
+    private boolean syncing;
+
+    /**
+     * Opens a log, creating the file if it does not exist
+     *
+     * @param filePath The file to append to
+     * @param durability When writes are forced to disk
+     * @param fsyncIntervalMillis Sync period for {@link Durability#FSYNC_INTERVAL}
+     * @throws IOException If the file cannot be opened
+     */
+    public GroupCommitLog(Path filePath, Durability durability, long fsyncIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(filePath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.durability = durability;
+        this.written = channel.size();
+        this.synced = written;
+
+        if (durability == Durability.FSYNC_INTERVAL) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "log-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncQuietly,
+                    fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Gets the number of bytes in the file, including writes not yet synced
+     */
+    public long size() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    /**
+     * Appends lines in a single write, preceded by a header if the file is empty.
+     * The lines are visible to readers on return; call {@link #commit()} to
+     * make them durable.
+     *
+     * @param header Line to write first when the file is empty, or null
+     * @param lines The lines to append
+     * @return The offset of the first appended line
+     * @throws IOException If the write fails
+     */
+    public long appendLines(String header, List<String> lines) throws IOException {
+        synchronized (lock) {
+            boolean writeHeader = header != null && written == 0;
+            ByteBuffer buffer = encode(writeHeader ? header : null, lines);
+            long offset = written + (writeHeader ? header.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR.length : 0);
+
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            return offset;
+        }
+    }
+
+    /**
+     * Waits until earlier appends are durable as required by the durability
+     * setting. Only {@link Durability#FSYNC_PER_WRITE} waits for a sync.
+     *
+     * @throws IOException If the sync fails
+     */
+    public void commit() throws IOException {
+        if (durability == Durability.FSYNC_PER_WRITE) {
+            try {
+                flush();
+            } catch (ClosedChannelException e) {
+                // close() already forced everything written
+            }
+        }
+    }
+
+    private static ByteBuffer encode(String header, List<String> lines) {
+        int size = 0;
+        byte[][] encoded = new byte[lines.size() + 1][];
+        if (header != null) {
+            encoded[0] = header.getBytes(StandardCharsets.UTF_8);
+            size += encoded[0].length + LINE_SEPARATOR.length;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            encoded[i + 1] = lines.get(i).getBytes(StandardCharsets.UTF_8);
+            size += encoded[i + 1].length + LINE_SEPARATOR.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] line : encoded) {
+            if (line != null) {
+                buffer.put(line).put(LINE_SEPARATOR);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Waits until everything up to the given offset is on disk, forcing it
+     * if no other writer is already doing so
+     */
+    private void sync(long end) throws IOException {
+        long target;
+        synchronized (lock) {
+            while (synced < end && syncing) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for sync", e);
+                }
+            }
+            if (synced >= end) {
+                return;
+            }
+            syncing = true;
+            target = written;
+        }
+
+        boolean success = false;
+        try {
+            channel.force(false);
+            success = true;
+        } finally {
+            synchronized (lock) {
+                syncing = false;
+                if (success) {
+                    synced = Math.max(synced, target);
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Forces all writes so far to disk
+     *
+     * @throws IOException If the sync fails
+     */
+    public void flush() throws IOException {
+        sync(size());
+    }
+
+    private void syncQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Error syncing log: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdownNow();
+        }
+        try {
+            if (durability != Durability.OS_BUFFERED) {
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,795 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import customexceptions.StorageException;
+
+/**
+ * Storage that keeps each model in an append-only log instead of a CSV file
+ * that is rewritten on every change.
+ *
+ * The log starts with the file header, followed by one entry per line:
+ * <pre>
+ * +&lt;record&gt;   a new version of a record
+ * -&lt;id&gt;       a tombstone deleting a record
+ * </pre>
+ * An in-memory keydir maps each live ID to the offset of its latest version,
+ * so add, update and remove are single appends and get is a single positioned
+ * read. Superseded versions and tombstones are dropped by a background
+ * compaction once they make up a large enough share of the log.
+ *
+ * Writers append and update the keydir while holding the storage lock, and
+ * wait for their entries to become durable only after releasing it, so
+ * concurrent writers can share one fsync of the {@link GroupCommitLog}.
+ */
+public final class LogStructuredStorage<T> implements Storage<T> {
+    private static final String LOG_EXTENSION = ".log";
+    private static final String COMPACT_EXTENSION = ".log.compact";
+    private static final char PUT = '+';
+    private static final char DELETE = '-';
+    private static final int LINE_SEPARATOR_LENGTH =
+            System.lineSeparator().getBytes(StandardCharsets.UTF_8).length;
+
+    // Compaction settings
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    private static final long MIN_DEAD_ENTRIES = 1000;
+    private static final double MAX_DEAD_RATIO = 0.5;
+
+    private final StorageConfig config;
+    private final Map<String, ModelLog> logs = new HashMap<>();
+    private final Map<String, GroupCommitLog> appendLogs = new HashMap<>();
+    private final ScheduledExecutorService compactor;
+
+    /**
+     * In-memory state of one model's log
+     */
+    private static class ModelLog {
+        Map<String, Long> keydir = new LinkedHashMap<>();
+        final Map<Integer, UniqueColumnIndex> columnIndexes = new HashMap<>();
+        String header;
+        long deadEntries;
+        boolean compacting;
+    }
+
+    /**
+     * Receives log entries in file order
+     */
+    private interface EntryVisitor {
+        void visit(long offset, String entry) throws IOException;
+    }
+
+    /**
+     * Creates a new LogStructuredStorage with default configuration
+     */
+    public LogStructuredStorage() {
+        this(new StorageConfig());
+    }
+
+    /**
+     * Creates a new LogStructuredStorage with custom configuration
+     *
+     * @param config Storage configuration
+     */
+    public LogStructuredStorage(StorageConfig config) {
+        this.config = config;
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Path getLogPath(String model) {
+        return config.getPathForModel(model, LOG_EXTENSION);
+    }
+
+    private void ensureDirectoryExists() {
+        File directory = new File(config.getDataDirectory());
+        if (!directory.exists()) {
+            boolean created = directory.mkdirs();
+            if (created) {
+                System.out.println("Created data directory: " + config.getDataDirectory());
+            }
+        }
+    }
+
+    private static String idOf(String line) {
+        int comma = line.indexOf(',');
+        return comma < 0 ? line : line.substring(0, comma);
+    }
+
+    private static int lengthOf(String line) {
+        return line.getBytes(StandardCharsets.UTF_8).length + LINE_SEPARATOR_LENGTH;
+    }
+
+    /**
+     * Gets the state of a model, replaying its log on first use
+     */
+    private ModelLog open(String model) {
+        ModelLog log = logs.get(model);
+        if (log == null) {
+            log = new ModelLog();
+            Path path = getLogPath(model);
+            if (Files.exists(path)) {
+                try {
+                    ModelLog loaded = log;
+                    scanEntries(path, 0, Files.size(path), (offset, entry) -> replay(loaded, offset, entry));
+                } catch (IOException e) {
+                    throw new StorageException("Error opening log for model: " + model, e);
+                }
+            }
+            logs.put(model, log);
+        }
+        return log;
+    }
+
+    /**
+     * Applies one log entry to the keydir
+     */
+    private static void replay(ModelLog log, long offset, String entry) {
+        if (offset == 0) {
+            log.header = entry;
+        } else if (entry.isEmpty()) {
+            return;
+        } else if (entry.charAt(0) == PUT) {
+            if (log.keydir.put(idOf(entry.substring(1)), offset) != null) {
+                log.deadEntries++;
+            }
+        } else if (entry.charAt(0) == DELETE) {
+            if (log.keydir.remove(entry.substring(1)) != null) {
+                log.deadEntries++;
+            }
+            log.deadEntries++; // The tombstone itself
+        }
+    }
+
+    /**
+     * Reads the log entries between two offsets
+     */
+    private static void scanEntries(Path path, long from, long to, EntryVisitor visitor) throws IOException {
+        try (EntryReader reader = new EntryReader(path, from)) {
+            while (reader.next(to)) {
+                visitor.visit(reader.offset, reader.entry);
+            }
+        }
+    }
+
+    /**
+     * Reads log entries forward from an offset, one at a time
+     */
+    private static class EntryReader implements Closeable {
+        private final InputStream in;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private long position;
+        // Offset and text of the entry read last
+        long offset;
+        String entry;
+
+        EntryReader(Path path, long from) throws IOException {
+            this.in = new BufferedInputStream(Files.newInputStream(path));
+            try {
+                in.skipNBytes(from);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            this.position = from;
+        }
+
+        /**
+         * Moves forward to an offset, which must be at or after the end of the entry read last
+         */
+        void skipTo(long offset) throws IOException {
+            in.skipNBytes(offset - position);
+            position = offset;
+        }
+
+        /**
+         * Reads the next entry, stopping at an offset
+         *
+         * @return false if there are no more entries before the offset
+         */
+        boolean next(long to) throws IOException {
+            offset = position;
+            line.reset();
+            int b;
+            while (position < to && (b = in.read()) != -1) {
+                position++;
+                if (b == '\n') {
+                    entry = decode(line);
+                    return true;
+                }
+                line.write(b);
+            }
+            if (line.size() > 0) {
+                entry = decode(line);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static String decode(ByteArrayOutputStream line) {
+        String entry = line.toString(StandardCharsets.UTF_8);
+        return entry.endsWith("\r") ? entry.substring(0, entry.length() - 1) : entry;
+    }
+
+    /**
+     * Gets the open append log for a model
+     */
+    private GroupCommitLog getAppendLog(String model) throws IOException {
+        GroupCommitLog appendLog = appendLogs.get(model);
+        if (appendLog == null) {
+            ensureDirectoryExists();
+            appendLog = new GroupCommitLog(getLogPath(model), config.getDurability(), config.getFsyncIntervalMillis());
+            appendLogs.put(model, appendLog);
+        }
+        return appendLog;
+    }
+
+    /**
+     * Appends entries to a model's log and applies them to the keydir. The
+     * caller commits the returned log after releasing the storage lock.
+     *
+     * @return The log the entries were appended to
+     */
+    private GroupCommitLog append(String model, ModelLog log, String fileHeader, List<String> entries) throws IOException {
+        GroupCommitLog appendLog = getAppendLog(model);
+        boolean newFile = appendLog.size() == 0;
+        long offset = appendLog.appendLines(fileHeader, entries);
+
+        if (newFile) {
+            replay(log, 0, fileHeader);
+        }
+        for (String entry : entries) {
+            replay(log, offset, entry);
+            offset += lengthOf(entry);
+        }
+        return appendLog;
+    }
+
+    /**
+     * Reads the latest version of a record through the keydir
+     */
+    private String readRecord(String model, ModelLog log, String id) throws IOException {
+        Long offset = log.keydir.get(id);
+        if (offset == null) {
+            return null;
+        }
+        String entry = OffsetIndex.readLineAt(getLogPath(model), offset);
+        return entry == null ? null : entry.substring(1);
+    }
+
+    /**
+     * Keeps the column indexes of a model in step with a record change
+     *
+     * @param oldLine The previous version, or null for a new record
+     * @param newLine The new version, or null for a removal
+     */
+    private static void reindex(ModelLog log, String oldLine, String newLine) {
+        for (UniqueColumnIndex index : log.columnIndexes.values()) {
+            if (oldLine != null) {
+                index.remove(oldLine);
+            }
+            if (newLine != null) {
+                index.add(newLine);
+            }
+        }
+    }
+
+    /**
+     * Appends new versions of records, keeping column indexes up to date
+     *
+     * @return The log to commit once the storage lock is released
+     */
+    private GroupCommitLog put(String model, ModelLog log, String fileHeader, List<String> lines) throws IOException {
+        List<String> entries = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (!log.columnIndexes.isEmpty()) {
+                reindex(log, readRecord(model, log, idOf(line)), line);
+            }
+            entries.add(PUT + line);
+        }
+        return append(model, log, fileHeader, entries);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void add(Map<String, Object> map) {
+        String model = map.get("model").toString();
+        T obj = (T) map.get("obj");
+        String fileHeader = map.get("fileHeader").toString();
+
+        try {
+            GroupCommitLog appendLog;
+            synchronized (this) {
+                appendLog = put(model, open(model), fileHeader, List.of(obj.toString()));
+            }
+            appendLog.commit();
+        } catch (IOException e) {
+            throw new StorageException("Error adding record", e);
+        }
+    }
+
+    @Override
+    public synchronized String get(String model, String id) {
+        try {
+            String line = readRecord(model, open(model), id);
+            return line == null ? "" : line;
+        } catch (IOException e) {
+            throw new StorageException("Error retrieving record with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public void remove(String model, String id) {
+        try {
+            GroupCommitLog appendLog;
+            synchronized (this) {
+                ModelLog log = open(model);
+                if (!log.keydir.containsKey(id)) {
+                    return;
+                }
+                if (!log.columnIndexes.isEmpty()) {
+                    reindex(log, readRecord(model, log, id), null);
+                }
+                appendLog = append(model, log, log.header, List.of(DELETE + id));
+            }
+            appendLog.commit();
+        } catch (IOException e) {
+            throw new StorageException("Error removing record with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public void update(String model, String id, T obj) {
+        try {
+            GroupCommitLog appendLog;
+            synchronized (this) {
+                ModelLog log = open(model);
+                if (log.header == null) {
+                    throw new StorageException("File not found for model: " + model);
+                }
+                if (!log.keydir.containsKey(id)) {
+                    throw new StorageException("Record with ID " + id + " not found");
+                }
+                appendLog = put(model, log, log.header, List.of(obj.toString()));
+            }
+            appendLog.commit();
+        } catch (IOException e) {
+            throw new StorageException("Error updating record with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> getAll(String model) {
+        ModelLog log = open(model);
+        if (log.header == null || !Files.exists(getLogPath(model))) {
+            return Collections.emptyList();
+        }
+
+        List<String> lines = new ArrayList<>(log.keydir.size() + 1);
+        lines.add(log.header);
+        scan(model, lines::add);
+        return lines;
+    }
+
+    @Override
+    public synchronized void scan(String model, Consumer<String> action) {
+        ModelLog log = open(model);
+        Path path = getLogPath(model);
+        if (log.header == null || !Files.exists(path)) {
+            return;
+        }
+
+        try {
+            scanEntries(path, 0, Files.size(path), (offset, entry) -> {
+                if (isLive(log, offset, entry)) {
+                    action.accept(entry.substring(1));
+                }
+            });
+        } catch (IOException e) {
+            throw new StorageException("Error scanning records for model: " + model, e);
+        }
+    }
+
+    /**
+     * Streams the records live when the stream is opened, reading the log
+     * from the start and skipping straight to each live version. Only their
+     * offsets are held in memory, and no lock is held while the stream is
+     * read; a log swapped in by compaction leaves the open file intact.
+     */
+    @Override
+    public Stream<String> stream(String model) {
+        long[] live;
+        EntryReader reader;
+        synchronized (this) {
+            ModelLog log = open(model);
+            Path path = getLogPath(model);
+            if (log.header == null || !Files.exists(path)) {
+                return Stream.empty();
+            }
+
+            live = new long[log.keydir.size()];
+            int i = 0;
+            for (long offset : log.keydir.values()) {
+                live[i++] = offset;
+            }
+            Arrays.sort(live);
+            try {
+                // Opened under the lock, so the offsets match the file
+                reader = new EntryReader(path, 0);
+            } catch (IOException e) {
+                throw new StorageException("Error streaming records for model: " + model, e);
+            }
+        }
+
+        Spliterator<String> records = new Spliterators.AbstractSpliterator<>(live.length,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.SIZED) {
+            private int next;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super String> action) {
+                if (next == live.length) {
+                    return false;
+                }
+                try {
+                    reader.skipTo(live[next++]);
+                    reader.next(Long.MAX_VALUE);
+                } catch (IOException e) {
+                    throw new StorageException("Error streaming records for model: " + model, e);
+                }
+                action.accept(reader.entry.substring(1));
+                return true;
+            }
+        };
+        return StreamSupport.stream(records, false).onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new StorageException("Error closing records stream for model: " + model, e);
+            }
+        });
+    }
+
+    /**
+     * Reads a page of records in log order. Cursors hold the byte offset of
+     * an entry in the log, so a page is read from there without scanning
+     * the entries before it.
+     */
+    @Override
+    public synchronized Page page(String model, PageCursor cursor, int pageSize) {
+        ModelLog log = open(model);
+        Path path = getLogPath(model);
+        List<String> records = new ArrayList<>();
+        if (log.header == null || pageSize <= 0 || !Files.exists(path)) {
+            return new Page(records, null, null, false);
+        }
+
+        try {
+            long size = Files.size(path);
+            long first = lengthOf(log.header);
+            long from = cursor == null ? first : locate(path, log, cursor, first, size);
+            PageCursor start = null;
+            PageCursor next = null;
+            try (EntryReader reader = new EntryReader(path, from)) {
+                while (next == null && reader.next(size)) {
+                    if (!isLive(log, reader.offset, reader.entry)) {
+                        continue;
+                    }
+                    String line = reader.entry.substring(1);
+                    if (records.size() == pageSize) {
+                        next = new PageCursor(reader.offset, idOf(line));
+                    } else {
+                        if (start == null) {
+                            start = new PageCursor(reader.offset, idOf(line));
+                        }
+                        records.add(line);
+                    }
+                }
+            }
+            return new Page(records, start, next, from > first);
+        } catch (IOException e) {
+            throw new StorageException("Error reading page for model: " + model, e);
+        }
+    }
+
+    private static boolean isLive(ModelLog log, long offset, String entry) {
+        return offset > 0 && !entry.isEmpty() && entry.charAt(0) == PUT
+                && Long.valueOf(offset).equals(log.keydir.get(idOf(entry.substring(1))));
+    }
+
+    /**
+     * Finds the offset a cursor points to: its recorded offset if an entry
+     * for its record is still there, even a superseded one, else wherever
+     * compaction has moved the record to. If the record is gone, paging
+     * continues from the entry at or after the recorded offset.
+     */
+    private static long locate(Path path, ModelLog log, PageCursor cursor, long first, long size) throws IOException {
+        long offset = cursor.getPosition();
+        if (offset >= first && offset < size) {
+            String entry = OffsetIndex.readLineAt(path, offset);
+            if (entry != null && !entry.isEmpty() && entry.charAt(0) == PUT
+                    && cursor.getId().equals(idOf(entry.substring(1)))) {
+                return offset;
+            }
+        }
+
+        Long indexed = log.keydir.get(cursor.getId());
+        if (indexed != null) {
+            return indexed;
+        }
+        if (offset <= first) {
+            return first;
+        }
+        // Skip the rest of the entry the offset falls in
+        try (EntryReader reader = new EntryReader(path, Math.min(offset, size) - 1)) {
+            reader.next(size);
+            return reader.position;
+        }
+    }
+
+    @Override
+    public void batchAdd(String model, List<T> objects, String fileHeader) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        List<String> lines = new ArrayList<>(objects.size());
+        for (T obj : objects) {
+            lines.add(obj.toString());
+        }
+
+        try {
+            GroupCommitLog appendLog;
+            synchronized (this) {
+                appendLog = put(model, open(model), fileHeader, lines);
+            }
+            appendLog.commit();
+        } catch (IOException e) {
+            throw new StorageException("Error during batch add operation", e);
+        }
+    }
+
+    @Override
+    public void batchUpdate(String model, Map<String, T> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        try {
+            GroupCommitLog appendLog;
+            synchronized (this) {
+                ModelLog log = open(model);
+                if (log.header == null) {
+                    throw new StorageException("File not found for model: " + model);
+                }
+
+                List<String> lines = new ArrayList<>();
+                for (Map.Entry<String, T> entry : objects.entrySet()) {
+                    if (log.keydir.containsKey(entry.getKey())) {
+                        lines.add(entry.getValue().toString());
+                    }
+                }
+
+                if (lines.isEmpty()) {
+                    throw new StorageException("No matching records found for batch update");
+                }
+                appendLog = put(model, log, log.header, lines);
+            }
+            appendLog.commit();
+        } catch (IOException e) {
+            throw new StorageException("Error during batch update operation", e);
+        }
+    }
+
+    /**
+     * Appends the tombstones of all the given records in one write
+     */
+    @Override
+    public void batchRemove(String model, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try {
+            GroupCommitLog appendLog;
+            synchronized (this) {
+                ModelLog log = open(model);
+                List<String> tombstones = new ArrayList<>();
+                for (String id : new LinkedHashSet<>(ids)) {
+                    if (log.keydir.containsKey(id)) {
+                        if (!log.columnIndexes.isEmpty()) {
+                            reindex(log, readRecord(model, log, id), null);
+                        }
+                        tombstones.add(DELETE + id);
+                    }
+                }
+
+                if (tombstones.isEmpty()) {
+                    return;
+                }
+                appendLog = append(model, log, log.header, tombstones);
+            }
+            appendLog.commit();
+        } catch (IOException e) {
+            throw new StorageException("Error during batch remove operation", e);
+        }
+    }
+
+    @Override
+    public synchronized boolean valueExistsInColumn(String model, String columnValue, int columnIndex, String... excludeId) {
+        ModelLog log = open(model);
+        if (log.header == null) {
+            return false;
+        }
+
+        UniqueColumnIndex index = log.columnIndexes.get(columnIndex);
+        if (index == null) {
+            index = UniqueColumnIndex.build(getAll(model), columnIndex);
+            log.columnIndexes.put(columnIndex, index);
+        }
+        return index.contains(columnValue, excludeId.length > 0 ? excludeId[0] : null);
+    }
+
+    @Override
+    public void flush() {
+        List<GroupCommitLog> openLogs;
+        synchronized (this) {
+            openLogs = new ArrayList<>(appendLogs.values());
+        }
+        try {
+            for (GroupCommitLog appendLog : openLogs) {
+                try {
+                    appendLog.flush();
+                } catch (ClosedChannelException e) {
+                    // Closed by a compaction, which forced it first
+                }
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error flushing storage", e);
+        }
+    }
+
+    /**
+     * Rewrites a model's log so it holds only the latest version of each live
+     * record. The bulk of the copy runs without holding the storage lock;
+     * entries appended meanwhile are carried over before the new log is
+     * swapped in.
+     *
+     * @param model The model name
+     */
+    public void compact(String model) {
+        Path path = getLogPath(model);
+        Path compactPath = config.getPathForModel(model, COMPACT_EXTENSION);
+        ModelLog log;
+        Map<String, Long> liveOffsets;
+        long end;
+
+        synchronized (this) {
+            log = open(model);
+            if (log.header == null || log.compacting || !Files.exists(path)) {
+                return;
+            }
+            try {
+                end = Files.size(path);
+            } catch (IOException e) {
+                throw new StorageException("Error compacting log for model: " + model, e);
+            }
+            liveOffsets = new HashMap<>(log.keydir);
+            log.compacting = true;
+        }
+
+        try {
+            ModelLog compacted = new ModelLog();
+            long[] written = {0};
+
+            // Copy the live versions present when compaction started
+            try (BufferedWriter writer = Files.newBufferedWriter(compactPath, StandardCharsets.UTF_8)) {
+                writer.write(log.header);
+                writer.newLine();
+                replay(compacted, 0, log.header);
+                written[0] += lengthOf(log.header);
+
+                scanEntries(path, 0, end, (offset, entry) -> {
+                    if (offset > 0 && !entry.isEmpty() && entry.charAt(0) == PUT
+                            && Long.valueOf(offset).equals(liveOffsets.get(idOf(entry.substring(1))))) {
+                        writer.write(entry);
+                        writer.newLine();
+                        replay(compacted, written[0], entry);
+                        written[0] += lengthOf(entry);
+                    }
+                });
+            }
+
+            synchronized (this) {
+                // Carry over whatever was appended while copying, then swap
+                try (BufferedWriter writer = Files.newBufferedWriter(compactPath, StandardCharsets.UTF_8,
+                        StandardOpenOption.APPEND)) {
+                    scanEntries(path, end, Files.size(path), (offset, entry) -> {
+                        writer.write(entry);
+                        writer.newLine();
+                        replay(compacted, written[0], entry);
+                        written[0] += lengthOf(entry);
+                    });
+                }
+
+                // The open append log still points at the old file
+                GroupCommitLog appendLog = appendLogs.remove(model);
+                if (appendLog != null) {
+                    appendLog.close();
+                }
+                Files.move(compactPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                log.keydir = compacted.keydir;
+                log.deadEntries = compacted.deadEntries;
+            }
+        } catch (IOException e) {
+            throw new StorageException("Error compacting log for model: " + model, e);
+        } finally {
+            synchronized (this) {
+                log.compacting = false;
+            }
+        }
+    }
+
+    /**
+     * Compacts every open model whose log is mostly superseded entries
+     */
+    private void compactIfNeeded() {
+        List<String> models;
+        synchronized (this) {
+            models = new ArrayList<>();
+            for (Map.Entry<String, ModelLog> entry : logs.entrySet()) {
+                ModelLog log = entry.getValue();
+                long total = log.deadEntries + log.keydir.size();
+                if (log.deadEntries >= MIN_DEAD_ENTRIES && log.deadEntries >= total * MAX_DEAD_RATIO) {
+                    models.add(entry.getKey());
+                }
+            }
+        }
+
+        for (String model : models) {
+            try {
+                compact(model);
+            } catch (StorageException e) {
+                System.err.println("Error during log compaction: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package models;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import customexceptions.StorageException;
+
+/**
+ * Reads the lines of a file through memory-mapped windows, so a full scan is
+ * served from the OS page cache instead of being copied into heap buffers
+ * first. Only one line at a time is decoded onto the heap.
+ */
+public class MappedFileReader {
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * Receives the bytes of one line, copied into a scratch array
+     */
+    private interface LineSink {
+        /**
+         * @return false to stop reading
+         */
+        boolean accept(byte[] line, int length);
+    }
+
+    /**
+     * Visits every line of a file in order
+     *
+     * @param filePath The file to read
+     * @param action Called with each line, without its terminator
+     * @throws IOException If the file cannot be mapped
+     */
+    public static void forEachLine(Path filePath, Consumer<String> action) throws IOException {
+        forEachLine(filePath, (line, length) -> {
+            action.accept(new String(line, 0, length, StandardCharsets.UTF_8));
+            return true;
+        });
+    }
+
+    /**
+     * Visits every line of a file as a parsed record, without decoding the
+     * lines into Strings
+     *
+     * @param filePath The file to read
+     * @param parser The parser to reuse for every line
+     * @param action Called with the parser positioned on each line, including the header
+     * @throws IOException If the file cannot be mapped
+     */
+    public static void forEachRecord(Path filePath, CsvRecordParser parser, Consumer<CsvRecordParser> action) throws IOException {
+        forEachLine(filePath, (line, length) -> {
+            action.accept(parser.reset(line, 0, length));
+            return true;
+        });
+    }
+
+    /**
+     * Visits the lines of a file as parsed records until the action asks to stop,
+     * so a search that has found enough does not read the rest of the file
+     *
+     * @param filePath The file to read
+     * @param parser The parser to reuse for every line
+     * @param action Called with the parser positioned on each line, including the header; returns false to stop
+     * @throws IOException If the file cannot be mapped
+     */
+    public static void forEachRecordWhile(Path filePath, CsvRecordParser parser, Predicate<CsvRecordParser> action) throws IOException {
+        forEachLine(filePath, (line, length) -> action.test(parser.reset(line, 0, length)));
+    }
+
+    private static void forEachLine(Path filePath, LineSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long windowStart = 0;
+            byte[] line = new byte[256];
+
+            while (windowStart < size) {
+                long windowLength = Math.min(WINDOW_SIZE, size - windowStart);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+                int lineStart = 0;
+
+                for (int i = 0; i < windowLength; i++) {
+                    if (buffer.get(i) == '\n') {
+                        line = fit(line, i - lineStart);
+                        if (!emit(buffer, lineStart, i, line, sink)) {
+                            return;
+                        }
+                        lineStart = i + 1;
+                    }
+                }
+
+                if (windowStart + windowLength == size) {
+                    // Last line without a trailing newline
+                    if (lineStart < windowLength) {
+                        line = fit(line, (int) windowLength - lineStart);
+                        emit(buffer, lineStart, (int) windowLength, line, sink);
+                    }
+                    break;
+                }
+                if (lineStart == 0) {
+                    throw new StorageException("Line longer than " + WINDOW_SIZE + " bytes in " + filePath);
+                }
+
+                // Remap from the start of the line cut off by the window
+                windowStart += lineStart;
+            }
+        }
+    }
+
+    /**
+     * Grows a scratch array if a line does not fit
+     */
+    private static byte[] fit(byte[] scratch, int length) {
+        return length > scratch.length ? new byte[Math.max(length, scratch.length * 2)] : scratch;
+    }
+
+    /**
+     * Copies the bytes between two buffer positions into a scratch array large
+     * enough to hold them and passes them on
+     *
+     * @return false if the sink asked to stop
+     */
+    private static boolean emit(MappedByteBuffer buffer, int start, int end, byte[] scratch, LineSink sink) {
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int length = end - start;
+        buffer.get(start, scratch, 0, length);
+        return sink.accept(scratch, length);
+    }
+}
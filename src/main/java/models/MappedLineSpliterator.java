@@ -0,0 +1,141 @@
+package models;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the lines of a memory-mapped file. Splitting cuts the
+ * remaining byte range in half at the nearest line break, so a parallel
+ * stream gives each worker its own part of the file to read and parse
+ * instead of handing out lines from a single reader.
+ *
+ * A spliterator owns the lines that start inside its range, and reads a
+ * line to its end even if that is past the range.
+ */
+public class MappedLineSpliterator implements Spliterator<String> {
+    private static final long WINDOW_SIZE = 16L * 1024 * 1024;
+    private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+    private static final int ESTIMATED_LINE_LENGTH = 64;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private long position;
+    private final long end;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a spliterator over the lines starting in a byte range
+     *
+     * @param channel Open channel of the file, closed by the caller when the stream is done
+     * @param start Offset of the first line
+     * @param end Offset after the last byte of the range
+     * @throws IOException If the file size cannot be read
+     */
+    public MappedLineSpliterator(FileChannel channel, long start, long end) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.position = start;
+        this.end = Math.min(end, fileSize);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        if (position >= end) {
+            return false;
+        }
+        try {
+            action.accept(readLine());
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Spliterator<String> trySplit() {
+        if (end - position < MIN_SPLIT_SIZE) {
+            return null;
+        }
+        try {
+            long lineBreak = findLineBreak(position + (end - position) / 2);
+            if (lineBreak < 0 || lineBreak + 1 >= end) {
+                return null;
+            }
+            MappedLineSpliterator prefix = new MappedLineSpliterator(channel, position, lineBreak + 1);
+            position = lineBreak + 1;
+            window = null;
+            return prefix;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long estimateSize() {
+        return Math.max(0, end - position) / ESTIMATED_LINE_LENGTH;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Decodes the line at the current position and moves past its terminator
+     */
+    private String readLine() throws IOException {
+        int length = 0;
+        long lineStart = position;
+        while (position < fileSize) {
+            byte b = byteAt(position++);
+            if (b == '\n') {
+                break;
+            }
+            if (length == scratch.length) {
+                byte[] grown = new byte[length * 2];
+                System.arraycopy(scratch, 0, grown, 0, length);
+                scratch = grown;
+            }
+            scratch[length++] = b;
+        }
+        if (length > 0 && scratch[length - 1] == '\r') {
+            length--;
+        }
+        if (position == lineStart) {
+            throw new IOException("No line at offset " + lineStart);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the first line break at or after an offset, within this range or the line crossing its end
+     *
+     * @return The offset of the line break, or -1 if there is none
+     */
+    private long findLineBreak(long from) throws IOException {
+        for (long p = from; p < fileSize; p++) {
+            if (byteAt(p) == '\n') {
+                return p;
+            }
+            if (p >= end) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private byte byteAt(long offset) throws IOException {
+        if (window == null || offset < windowStart || offset >= windowStart + window.limit()) {
+            windowStart = offset;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, fileSize - offset));
+        }
+        return window.get((int) (offset - windowStart));
+    }
+}
@@ -0,0 +1,174 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory index from record ID to the byte offset of its line in a model file.
+ * The ID is the first column of each line; the header line is not indexed.
+ */
+public class OffsetIndex {
+    private static final int READ_CHUNK_SIZE = 256;
+
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+
+    /**
+     * Builds an index by scanning a model file once
+     *
+     * @param filePath The model file
+     * @return The index, empty if the file does not exist
+     * @throws IOException If the file cannot be read
+     */
+    public static OffsetIndex build(Path filePath) throws IOException {
+        OffsetIndex index = new OffsetIndex();
+        if (!Files.exists(filePath)) {
+            return index;
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(filePath))) {
+            byte[] idBuffer = new byte[64];
+            long position = 0;
+            long lineStart = 0;
+            int idLength = 0;
+            boolean inId = true;
+            boolean header = true;
+            int b;
+
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b == '\n') {
+                    if (!header && idLength > 0) {
+                        index.put(new String(idBuffer, 0, idLength, StandardCharsets.UTF_8), lineStart);
+                    }
+                    header = false;
+                    lineStart = position;
+                    idLength = 0;
+                    inId = true;
+                } else if (inId) {
+                    if (b == ',') {
+                        inId = false;
+                    } else if (b != '\r') {
+                        if (idLength == idBuffer.length) {
+                            idBuffer = Arrays.copyOf(idBuffer, idLength * 2);
+                        }
+                        idBuffer[idLength++] = (byte) b;
+                    }
+                }
+            }
+
+            // Last line without a trailing newline
+            if (!header && idLength > 0) {
+                index.put(new String(idBuffer, 0, idLength, StandardCharsets.UTF_8), lineStart);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Records the offset of a line, keeping the first one if the ID is already indexed
+     */
+    public void put(String id, long offset) {
+        offsets.putIfAbsent(id, offset);
+    }
+
+    /**
+     * Gets the offset of the line for an ID
+     *
+     * @return The offset, or -1 if the ID is not indexed
+     */
+    public long offsetOf(String id) {
+        Long offset = offsets.get(id);
+        return offset == null ? -1 : offset;
+    }
+
+    public void remove(String id) {
+        offsets.remove(id);
+    }
+
+    public int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Reads the single line starting at the given offset
+     *
+     * @param filePath The model file
+     * @param offset Byte offset of the line
+     * @return The line without its terminator, or null if the offset is past the end of the file
+     * @throws IOException If the file cannot be read
+     */
+    public static String readLineAt(Path filePath, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            return readLine(channel, offset, ByteBuffer.allocate(READ_CHUNK_SIZE));
+        }
+    }
+
+    /**
+     * Reads the lines starting at several offsets, opening the file only once
+     *
+     * @param filePath The model file
+     * @param offsets Byte offsets of the lines, ascending for the best locality
+     * @param action Called with each line without its terminator, in the order of the offsets
+     * @throws IOException If the file cannot be read
+     */
+    public static void readLinesAt(Path filePath, long[] offsets, Consumer<String> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK_SIZE);
+            for (long offset : offsets) {
+                String line = readLine(channel, offset, buffer);
+                if (line != null) {
+                    action.accept(line);
+                }
+            }
+        }
+    }
+
+    private static String readLine(FileChannel channel, long offset, ByteBuffer buffer) throws IOException {
+        if (offset >= channel.size()) {
+            return null;
+        }
+
+        byte[] line = new byte[READ_CHUNK_SIZE];
+        int length = 0;
+        long position = offset;
+
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    return decodeLine(line, length);
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+            position += read;
+        }
+        return decodeLine(line, length);
+    }
+
+    private static String decodeLine(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
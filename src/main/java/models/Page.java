@@ -0,0 +1,73 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of records read by {@link Storage#page} or {@link Storage#pageBefore},
+ * with the cursors needed to move to the neighbouring pages
+ */
+public class Page {
+    private final List<String> records;
+    private final PageCursor start;
+    private final PageCursor next;
+    private final boolean previous;
+
+    /**
+     * @param records The records of the page, in storage order
+     * @param start Cursor of the first record, or null if the page is empty
+     * @param next Cursor of the record after the page, or null if this is the last page
+     * @param previous Whether there are records before the page
+     */
+    public Page(List<String> records, PageCursor start, PageCursor next, boolean previous) {
+        this.records = Collections.unmodifiableList(records);
+        this.start = start;
+        this.next = next;
+        this.previous = previous;
+    }
+
+    /**
+     * Cuts a page out of records already in memory, with positions in list order
+     *
+     * @param all Every record of the model
+     * @param from Index of the first record of the page
+     * @param to Index after the last record of the page
+     * @return The page
+     */
+    public static Page of(List<String> all, int from, int to) {
+        PageCursor start = from < to ? new PageCursor(from, UniqueColumnIndex.column(all.get(from), 0)) : null;
+        PageCursor next = to < all.size() ? new PageCursor(to, UniqueColumnIndex.column(all.get(to), 0)) : null;
+        return new Page(new ArrayList<>(all.subList(from, to)), start, next, from > 0);
+    }
+
+    public List<String> getRecords() {
+        return records;
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    /**
+     * @return The cursor of the first record, for resuming at this page or paging back from it
+     */
+    public PageCursor getStartCursor() {
+        return start;
+    }
+
+    /**
+     * @return The cursor of the record after this page, or null if this is the last page
+     */
+    public PageCursor getNextCursor() {
+        return next;
+    }
+
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    public boolean hasPrevious() {
+        return previous;
+    }
+}
@@ -0,0 +1,67 @@
+package models;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a record in a model, used to resume paging where an earlier
+ * page left off. It keeps the ID of the record (the key) together with
+ * where it was found, a byte offset into the file for the CSV and LOG
+ * engines and a row number for the columnar one, so the engine can seek
+ * straight to it and still find the record by ID if the file has been
+ * rewritten since.
+ *
+ * A cursor can be turned into a token and back, so a listing can be resumed
+ * later or elsewhere.
+ */
+public class PageCursor {
+    private final long position;
+    private final String id;
+
+    public PageCursor(long position, String id) {
+        this.position = position;
+        this.id = id;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Encodes the cursor as a URL-safe token
+     */
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((position + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token made by {@link #toToken()}
+     *
+     * @param token The token
+     * @return The cursor
+     * @throws IllegalArgumentException If the token is not a valid cursor
+     */
+    public static PageCursor fromToken(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            long position = Long.parseLong(decoded.substring(0, separator));
+            if (position < 0) {
+                throw new IllegalArgumentException("Invalid cursor token: " + token);
+            }
+            return new PageCursor(position, decoded.substring(separator + 1));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor token: " + token, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toToken();
+    }
+}
@@ -0,0 +1,164 @@
+package models;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a few lines around a byte offset of an open file, forwards or
+ * backwards, so a page of records costs one seek and the bytes of the page
+ * rather than a pass over the whole file.
+ */
+public class PagedFileReader {
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * A line read from the file, with the offset it starts at
+     */
+    public static class Line {
+        private final long offset;
+        private final String text;
+
+        Line(long offset, String text) {
+            this.offset = offset;
+            this.text = text;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    /**
+     * Reads lines in order from the start of a line
+     *
+     * @param channel The open file
+     * @param offset Offset of the first line
+     * @param count The maximum number of lines to read
+     * @return The lines read, fewer than count at the end of the file
+     * @throws IOException If the file cannot be read
+     */
+    public static List<Line> readForward(FileChannel channel, long offset, int count) throws IOException {
+        List<Line> lines = new ArrayList<>(count);
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long position = offset;
+        long lineStart = offset;
+
+        while (lines.size() < count) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining() && lines.size() < count) {
+                byte b = buffer.get();
+                position++;
+                if (b == '\n') {
+                    lines.add(new Line(lineStart, decode(line)));
+                    line.reset();
+                    lineStart = position;
+                } else {
+                    line.write(b);
+                }
+            }
+        }
+
+        if (lines.size() < count && line.size() > 0) {
+            lines.add(new Line(lineStart, decode(line)));
+        }
+        return lines;
+    }
+
+    /**
+     * Finds the start of the line a number of lines before a line start
+     *
+     * @param channel The open file
+     * @param position Start of a line, or the end of the file
+     * @param floor Offset not to go below, such as the end of the header
+     * @param count The number of lines to go back
+     * @return The offset of the line, or floor if there are fewer lines before the position
+     * @throws IOException If the file cannot be read
+     */
+    public static long lineStartBefore(FileChannel channel, long position, long floor, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long end = position;
+        if (position > floor && readByte(channel, position - 1) == '\n') {
+            // The terminator of the line just before the position
+            end = position - 1;
+        }
+        int found = 0;
+
+        while (end > floor) {
+            long chunkStart = Math.max(floor, end - CHUNK_SIZE);
+            buffer.clear();
+            buffer.limit((int) (end - chunkStart));
+            while (buffer.hasRemaining() && channel.read(buffer, chunkStart + buffer.position()) > 0) {
+                // Keep reading until the chunk is full
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    found++;
+                    if (found == count) {
+                        return chunkStart + i + 1;
+                    }
+                }
+            }
+            end = chunkStart;
+        }
+        return floor;
+    }
+
+    /**
+     * Finds the first line start at or after an offset
+     *
+     * @param channel The open file
+     * @param offset Any offset in the file
+     * @return The offset of the line start, or the file size if there is none
+     * @throws IOException If the file cannot be read
+     */
+    public static long nextLineStart(FileChannel channel, long offset) throws IOException {
+        if (offset == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        long position = offset - 1;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private static byte readByte(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, offset);
+        return buffer.get(0);
+    }
+
+    private static String decode(ByteArrayOutputStream line) {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,44 @@
+package models;
+
+/**
+ * A reusable view over the projected columns of one row during a columnar scan.
+ * Values are addressed by their position in the projection, and the same
+ * instance is refilled for every row, so it must not be kept after the callback.
+ * Dictionary columns expose both their shared String value and its code through
+ * {@link #getInt(int)}.
+ */
+public class ProjectedRow {
+    private final String[] strings;
+    private final int[] ints;
+    private final double[] doubles;
+
+    ProjectedRow(int columns) {
+        this.strings = new String[columns];
+        this.ints = new int[columns];
+        this.doubles = new double[columns];
+    }
+
+    public String getString(int column) {
+        return strings[column];
+    }
+
+    public int getInt(int column) {
+        return ints[column];
+    }
+
+    public double getDouble(int column) {
+        return doubles[column];
+    }
+
+    void setString(int column, String value) {
+        strings[column] = value;
+    }
+
+    void setInt(int column, int value) {
+        ints[column] = value;
+    }
+
+    void setDouble(int column, double value) {
+        doubles[column] = value;
+    }
+}
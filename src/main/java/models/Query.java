@@ -0,0 +1,200 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A filtered read of one model, evaluated inside the storage engine by
+ * {@link Storage#query(Query, java.util.function.Consumer)}. Conditions are
+ * checked against the raw bytes of each record, so rejected records are
+ * never decoded, and engines with an index on a condition's column read only
+ * the records the index selects.
+ *
+ * All conditions must hold. Results come in storage order, cut off after the
+ * limit, and hold only the selected columns if a projection is set.
+ */
+public class Query {
+
+    public enum ConditionType { EQUALS, BETWEEN, ENDS_WITH_IGNORE_CASE }
+
+    /**
+     * One condition on a column
+     */
+    public static class Condition {
+        private final ConditionType type;
+        private final int column;
+        private final String value;
+        private final double min;
+        private final double max;
+
+        private Condition(ConditionType type, int column, String value, double min, double max) {
+            this.type = type;
+            this.column = column;
+            this.value = value;
+            this.min = min;
+            this.max = max;
+        }
+
+        public ConditionType getType() {
+            return type;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * @return The value to match for EQUALS, or the suffix for ENDS_WITH_IGNORE_CASE
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        /**
+         * Checks the condition against the record a parser is positioned on
+         */
+        public boolean matches(CsvRecordParser record) {
+            if (column >= record.getFieldCount()) {
+                return false;
+            }
+            return switch (type) {
+                case EQUALS -> record.fieldEquals(column, value);
+                case ENDS_WITH_IGNORE_CASE -> record.fieldEndsWithIgnoreCase(column, value);
+                case BETWEEN -> {
+                    try {
+                        double number = record.getDouble(column);
+                        yield number >= min && number <= max;
+                    } catch (NumberFormatException e) {
+                        yield false;
+                    }
+                }
+            };
+        }
+    }
+
+    private final String model;
+    private final List<Condition> conditions = new ArrayList<>();
+    private int[] projection;
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * Creates a query returning every record of a model
+     *
+     * @param model The model name
+     */
+    public Query(String model) {
+        this.model = model;
+    }
+
+    /**
+     * Keeps records whose column holds a value, compared exactly after trimming
+     *
+     * @return This query
+     */
+    public Query whereEquals(int column, String value) {
+        conditions.add(new Condition(ConditionType.EQUALS, column, value.trim(), 0, 0));
+        return this;
+    }
+
+    /**
+     * Keeps records whose numeric column holds a value in a range. Records
+     * where the column is not a number are left out.
+     *
+     * @param min Lowest value included
+     * @param max Highest value included
+     * @return This query
+     */
+    public Query whereBetween(int column, double min, double max) {
+        conditions.add(new Condition(ConditionType.BETWEEN, column, null, min, max));
+        return this;
+    }
+
+    /**
+     * Keeps records whose column ends with a suffix, ignoring case, such as an email domain
+     *
+     * @return This query
+     */
+    public Query whereEndsWithIgnoreCase(int column, String suffix) {
+        conditions.add(new Condition(ConditionType.ENDS_WITH_IGNORE_CASE, column, suffix.trim(), 0, 0));
+        return this;
+    }
+
+    /**
+     * Returns only some columns of each record, in the given order
+     *
+     * @param columns The column indexes (0-based)
+     * @return This query
+     */
+    public Query select(int... columns) {
+        this.projection = columns.clone();
+        return this;
+    }
+
+    /**
+     * Stops after a number of results
+     *
+     * @return This query
+     */
+    public Query limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public List<Condition> getConditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks every condition against the record a parser is positioned on
+     */
+    public boolean matches(CsvRecordParser record) {
+        for (Condition condition : conditions) {
+            if (!condition.matches(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the result for the record a parser is positioned on
+     *
+     * @return The record, or only its selected columns if a projection is set
+     */
+    public String project(CsvRecordParser record) {
+        if (projection == null) {
+            return record.getRecord();
+        }
+
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < projection.length; i++) {
+            if (i > 0) {
+                result.append(',');
+            }
+            if (projection[i] < record.getFieldCount()) {
+                result.append(record.getString(projection[i]));
+            }
+        }
+        return result.toString();
+    }
+}
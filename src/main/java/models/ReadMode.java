@@ -0,0 +1,12 @@
+package models;
+
+/**
+ * How FileStorage reads model files for full scans
+ */
+public enum ReadMode {
+    /** Read through a buffered reader on the heap */
+    BUFFERED,
+
+    /** Memory-map the file and decode records straight from the mapped pages */
+    MEMORY_MAPPED
+}
@@ -0,0 +1,102 @@
+package models;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index from the value of one column to the IDs of every record
+ * holding it, for columns such as the course that many records share. Values
+ * are compared exactly after trimming, and are kept in the order they were
+ * first seen, as are the IDs under each value.
+ */
+public class SecondaryIndex {
+    private final int columnIndex;
+    private final Map<String, Set<String>> ids = new LinkedHashMap<>();
+
+    public SecondaryIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    /**
+     * Builds an index for a column by scanning a model file once
+     *
+     * @param filePath The model file
+     * @param columnIndex The column to index (0-based)
+     * @return The index, empty if the file does not exist
+     * @throws IOException If the file cannot be read
+     */
+    public static SecondaryIndex build(Path filePath, int columnIndex) throws IOException {
+        SecondaryIndex index = new SecondaryIndex(columnIndex);
+        if (!Files.exists(filePath)) {
+            return index;
+        }
+
+        boolean[] header = {true};
+        MappedFileReader.forEachRecord(filePath, new CsvRecordParser(), record -> {
+            if (header[0]) {
+                header[0] = false;
+            } else if (record.getFieldCount() > columnIndex) {
+                index.add(record.getString(columnIndex), record.getString(0));
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Builds an index for a column from lines already in memory
+     *
+     * @param lines The lines of a model file, header first
+     * @param columnIndex The column to index (0-based)
+     * @return The index
+     */
+    public static SecondaryIndex build(List<String> lines, int columnIndex) {
+        SecondaryIndex index = new SecondaryIndex(columnIndex);
+        for (int i = 1; i < lines.size(); i++) {
+            index.add(lines.get(i));
+        }
+        return index;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Indexes a record line
+     */
+    public void add(String line) {
+        String value = UniqueColumnIndex.column(line, columnIndex);
+        if (value != null) {
+            add(value.trim(), UniqueColumnIndex.column(line, 0));
+        }
+    }
+
+    private void add(String value, String id) {
+        ids.computeIfAbsent(value, k -> new LinkedHashSet<>()).add(id);
+    }
+
+    /**
+     * Gets the distinct values of the column
+     */
+    public Set<String> values() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    /**
+     * Gets the IDs of the records holding a value
+     *
+     * @param value The value, compared after trimming
+     * @return The IDs, empty if no record holds the value
+     */
+    public Set<String> idsOf(String value) {
+        Set<String> matches = ids.get(value.trim());
+        return matches == null ? Set.of() : Collections.unmodifiableSet(matches);
+    }
+}
@@ -0,0 +1,427 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory ordered index over the numeric values of one column, such as the
+ * GPA. Records are kept in a skip list ordered by (value, ID), and every link
+ * also stores how many records it skips, so besides range scans the index can
+ * find a record's rank and the record at a given rank in logarithmic time.
+ *
+ * Records whose column is missing or not a number are not indexed.
+ *
+ * An index can be saved to a file next to the model file, together with the
+ * size and modification time the model file had, and loaded back instead of
+ * rescanning as long as the model file still has them.
+ */
+public class SortedIndex {
+    private static final int MAX_LEVEL = 32;
+    // "SIDX" and the file format version
+    private static final int MAGIC = 0x53494458;
+    private static final int VERSION = 1;
+
+    private final int columnIndex;
+    private final Node head = new Node(Double.NEGATIVE_INFINITY, null, MAX_LEVEL);
+    private int level = 1;
+    private int size;
+
+    private static final class Node {
+        final double value;
+        final String id;
+        final Node[] next;
+        // Number of records from this node to next[i], or to the end if next[i] is null
+        final int[] span;
+
+        Node(double value, String id, int level) {
+            this.value = value;
+            this.id = id;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+
+    public SortedIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    /**
+     * Builds an index for a column by scanning a model file once
+     *
+     * @param filePath The model file
+     * @param columnIndex The column to index (0-based)
+     * @return The index, empty if the file does not exist
+     * @throws IOException If the file cannot be read
+     */
+    public static SortedIndex build(Path filePath, int columnIndex) throws IOException {
+        SortedIndex index = new SortedIndex(columnIndex);
+        if (!Files.exists(filePath)) {
+            return index;
+        }
+
+        boolean[] header = {true};
+        MappedFileReader.forEachRecord(filePath, new CsvRecordParser(), record -> {
+            if (header[0]) {
+                header[0] = false;
+            } else if (record.getFieldCount() > columnIndex) {
+                try {
+                    index.add(record.getDouble(columnIndex), record.getString(0));
+                } catch (NumberFormatException e) {
+                    // Not a number, left out of the index
+                }
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Loads an index saved by {@link #save}, if it still matches the model file
+     *
+     * @param indexPath The saved index
+     * @param filePath The model file it was built from
+     * @param columnIndex The column the index must be for
+     * @return The index, or null if there is no saved index or the model
+     *         file has changed since it was saved
+     * @throws IOException If the files cannot be read
+     */
+    public static SortedIndex load(Path indexPath, Path filePath, int columnIndex) throws IOException {
+        if (!Files.exists(indexPath) || !Files.exists(filePath)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (!readHeader(in, filePath, columnIndex)) {
+                return null;
+            }
+
+            int count = in.readInt();
+            SortedIndex index = new SortedIndex(columnIndex);
+            // Entries are saved in order, so each one is linked in after the last
+            Node[] tails = new Node[MAX_LEVEL];
+            int[] tailRanks = new int[MAX_LEVEL];
+            Arrays.fill(tails, index.head);
+            for (int rank = 1; rank <= count; rank++) {
+                Node node = new Node(in.readDouble(), in.readUTF(), randomLevel());
+                for (int i = 0; i < node.next.length; i++) {
+                    tails[i].next[i] = node;
+                    tails[i].span[i] = rank - tailRanks[i];
+                    tails[i] = node;
+                    tailRanks[i] = rank;
+                }
+                index.level = Math.max(index.level, node.next.length);
+            }
+            for (int i = 0; i < index.level; i++) {
+                tails[i].span[i] = count - tailRanks[i];
+            }
+            index.size = count;
+            return index;
+        } catch (EOFException e) {
+            // Cut short while being written
+            return null;
+        }
+    }
+
+    /**
+     * Saves the index next to the model file it matches, unless the saved
+     * index is already up to date. Call it while no one can write to the
+     * model file, so the two stay in step.
+     *
+     * @param indexPath Where to save the index, replaced atomically
+     * @param filePath The model file the index matches
+     * @throws IOException If the index cannot be written
+     */
+    public void save(Path indexPath, Path filePath) throws IOException {
+        if (Files.exists(indexPath)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+                if (readHeader(in, filePath, columnIndex)) {
+                    // The model file has not changed since the index was saved or loaded
+                    return;
+                }
+            } catch (EOFException e) {
+                // Cut short, write it again
+            }
+        }
+
+        Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(filePath));
+            out.writeLong(modifiedTime(filePath));
+            out.writeInt(columnIndex);
+            out.writeInt(size);
+            for (Node x = head.next[0]; x != null; x = x.next[0]) {
+                out.writeDouble(x.value);
+                out.writeUTF(x.id);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the header of a saved index
+     *
+     * @return Whether the index was saved for the column and the model file as it is now
+     */
+    private static boolean readHeader(DataInputStream in, Path filePath, int columnIndex) throws IOException {
+        return in.readInt() == MAGIC && in.readInt() == VERSION
+                && in.readLong() == Files.size(filePath) && in.readLong() == modifiedTime(filePath)
+                && in.readInt() == columnIndex;
+    }
+
+    private static long modifiedTime(Path filePath) throws IOException {
+        return Files.getLastModifiedTime(filePath).to(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Builds an index for a column from lines already in memory
+     *
+     * @param lines The lines of a model file, header first
+     * @param columnIndex The column to index (0-based)
+     * @return The index
+     */
+    public static SortedIndex build(List<String> lines, int columnIndex) {
+        SortedIndex index = new SortedIndex(columnIndex);
+        for (int i = 1; i < lines.size(); i++) {
+            index.add(lines.get(i));
+        }
+        return index;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Parses the indexed column of a record line
+     *
+     * @return The value, or NaN if the column is missing or not a number
+     */
+    public static double valueOf(String line, int columnIndex) {
+        String value = UniqueColumnIndex.column(line, columnIndex);
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Indexes a record line
+     */
+    public void add(String line) {
+        add(valueOf(line, columnIndex), UniqueColumnIndex.column(line, 0));
+    }
+
+    private void add(double value, String id) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+
+        Node[] update = new Node[MAX_LEVEL];
+        int[] rank = new int[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (x.next[i] != null && compare(x.next[i], value, id) < 0) {
+                rank[i] += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        if (x.next[0] != null && compare(x.next[0], value, id) == 0) {
+            return;
+        }
+
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        Node node = new Node(value, id, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        size++;
+    }
+
+    /**
+     * Removes a record line from the index
+     */
+    public void remove(String line) {
+        double value = valueOf(line, columnIndex);
+        if (Double.isNaN(value)) {
+            return;
+        }
+        String id = UniqueColumnIndex.column(line, 0);
+
+        Node[] update = new Node[MAX_LEVEL];
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && compare(x.next[i], value, id) < 0) {
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node target = x.next[0];
+        if (target == null || compare(target, value, id) != 0) {
+            return;
+        }
+
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == target) {
+                update[i].span[i] += target.span[i] - 1;
+                update[i].next[i] = target.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+    }
+
+    /**
+     * Gets the IDs of the records with values in a range, lowest value first
+     *
+     * @param min Lowest value included
+     * @param max Highest value included
+     * @return The IDs, ordered by value and then by ID
+     */
+    public List<String> idsInRange(double min, double max) {
+        List<String> ids = new ArrayList<>();
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].value < min) {
+                x = x.next[i];
+            }
+        }
+        for (x = x.next[0]; x != null && x.value <= max; x = x.next[0]) {
+            ids.add(x.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Gets the IDs of the records with the highest values
+     *
+     * @param n The number of records wanted
+     * @return Up to n IDs, highest value first
+     */
+    public List<String> topIds(int n) {
+        List<String> ids = new ArrayList<>(Math.min(Math.max(n, 0), size));
+        if (n <= 0 || size == 0) {
+            return ids;
+        }
+        for (Node x = nodeAt(Math.max(0, size - n)); x != null; x = x.next[0]) {
+            ids.add(x.id);
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    /**
+     * Counts the records with values below a value
+     *
+     * @param value The value to compare with
+     * @return The number of records with a strictly lower value
+     */
+    public long countBelow(double value) {
+        long rank = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && x.next[i].value < value) {
+                rank += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Counts the records with values in a range
+     *
+     * @param min Lowest value included
+     * @param max Highest value included
+     * @return The number of records in the range
+     */
+    public long countBetween(double min, double max) {
+        return max < min ? 0 : countBelow(Math.nextUp(max)) - countBelow(min);
+    }
+
+    /**
+     * Gets the ID of the record at a rank
+     *
+     * @param rank Position in ascending order (0-based)
+     * @return The ID, or null if the rank is out of range
+     */
+    public String idAt(long rank) {
+        Node node = rank < 0 || rank >= size ? null : nodeAt(rank);
+        return node == null ? null : node.id;
+    }
+
+    private Node nodeAt(long rank) {
+        long target = rank + 1;
+        long traversed = 0;
+        Node x = head;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= target) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == target) {
+                return x;
+            }
+        }
+        return null;
+    }
+
+    private static int compare(Node node, double value, String id) {
+        int order = Double.compare(node.value, value);
+        return order != 0 ? order : node.id.compareTo(id);
+    }
+
+    private static int randomLevel() {
+        int nodeLevel = 1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (nodeLevel < MAX_LEVEL && random.nextInt(4) == 0) {
+            nodeLevel++;
+        }
+        return nodeLevel;
+    }
+}
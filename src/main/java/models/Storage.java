@@ -1,7 +1,16 @@
 package models;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface Storage<T> {
 
@@ -40,6 +49,22 @@ public interface Storage<T> {
      * @return List of all objects in storage for the given model
      */
     List<String> getAll(String model);
+
+    /**
+     * Visits every object in storage one at a time, without collecting them into a list
+     * @param model The model name
+     * @param action Called with each object as a String, the file header is not included
+     */
+    void scan(String model, Consumer<String> action);
+
+    /**
+     * Opens a lazy stream over every object in storage. The stream may hold a
+     * file and a lock until it is closed, so use it in a try-with-resources
+     * block and do not write to the same model while it is open.
+     * @param model The model name
+     * @return Each object as a String, the file header is not included
+     */
+    Stream<String> stream(String model);
     
     /**
      * Batch adds multiple objects to storage
@@ -57,4 +82,242 @@ public interface Storage<T> {
      * @param objects Map of ID to object
      */
     void batchUpdate(String model, Map<String, T> objects);
+
+    /**
+     * Batch removes multiple objects from storage, skipping IDs that are not
+     * stored. Engines that rewrite a file to remove an object override this
+     * to drop them all in one rewrite; the others remove them one by one.
+     *
+     * @param model The model name
+     * @param ids The IDs of the objects to remove
+     */
+    default void batchRemove(String model, Collection<String> ids) {
+        for (String id : ids) {
+            remove(model, id);
+        }
+    }
+
+    /**
+     * Checks if a value already exists in a specific column (trimmed, case-insensitive)
+     *
+     * @param model The model name
+     * @param columnValue The value to check
+     * @param columnIndex The column index to check (0-based)
+     * @param excludeId Optional ID to exclude from the check (for updates)
+     * @return true if the value exists, false otherwise
+     */
+    boolean valueExistsInColumn(String model, String columnValue, int columnIndex, String... excludeId);
+
+    /**
+     * Gets the distinct values of a column (trimmed), in the order they first appear.
+     * Engines that do not index the column find them with {@link #scan}.
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @return The distinct values
+     */
+    default Set<String> distinctValues(String model, int columnIndex) {
+        Set<String> values = new LinkedHashSet<>();
+        scan(model, line -> {
+            String value = UniqueColumnIndex.column(line, columnIndex);
+            if (value != null) {
+                values.add(value.trim());
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Visits the objects whose column holds a value (trimmed, exact match).
+     * Engines that index the column read only the matching objects; the
+     * others filter a {@link #scan}.
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @param value The value to match
+     * @param action Called with each matching object as a String
+     */
+    default void scanWhere(String model, int columnIndex, String value, Consumer<String> action) {
+        String wanted = value.trim();
+        scan(model, line -> {
+            String column = UniqueColumnIndex.column(line, columnIndex);
+            if (column != null && column.trim().equals(wanted)) {
+                action.accept(line);
+            }
+        });
+    }
+
+    /**
+     * Visits the objects whose numeric column holds a value in a range, lowest
+     * value first and ties ordered by ID. Engines that keep a sorted index on
+     * the column read only the matching objects; the others scan and sort.
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @param min Lowest value included
+     * @param max Highest value included
+     * @param action Called with each matching object as a String
+     */
+    default void scanRange(String model, int columnIndex, double min, double max, Consumer<String> action) {
+        List<String> matches = new ArrayList<>();
+        scan(model, line -> {
+            double value = SortedIndex.valueOf(line, columnIndex);
+            if (value >= min && value <= max) {
+                matches.add(line);
+            }
+        });
+        matches.sort(byColumn(columnIndex));
+        matches.forEach(action);
+    }
+
+    /**
+     * Gets the objects with the highest values in a numeric column
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @param n The number of objects wanted
+     * @return Up to n objects as Strings, highest value first
+     */
+    default List<String> top(String model, int columnIndex, int n) {
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        // Keeps the n highest seen so far, lowest of them at the head
+        PriorityQueue<String> highest = new PriorityQueue<>(byColumn(columnIndex));
+        scan(model, line -> {
+            if (!Double.isNaN(SortedIndex.valueOf(line, columnIndex))) {
+                highest.add(line);
+                if (highest.size() > n) {
+                    highest.poll();
+                }
+            }
+        });
+        List<String> result = new ArrayList<>(highest);
+        result.sort(byColumn(columnIndex).reversed());
+        return result;
+    }
+
+    /**
+     * Counts the objects whose numeric column holds a value below the given one
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @param value The value to compare with
+     * @return The number of objects with a strictly lower value
+     */
+    default long countBelow(String model, int columnIndex, double value) {
+        long[] count = {0};
+        scan(model, line -> {
+            if (SortedIndex.valueOf(line, columnIndex) < value) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Gets the object at a position when ordered by a numeric column, lowest
+     * value first and ties ordered by ID
+     *
+     * @param model The model name
+     * @param columnIndex The column index (0-based)
+     * @param rank The position (0-based)
+     * @return The object as a String, or null if the rank is out of range
+     */
+    default String atRank(String model, int columnIndex, long rank) {
+        List<String> ordered = new ArrayList<>();
+        scanRange(model, columnIndex, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ordered::add);
+        return rank < 0 || rank >= ordered.size() ? null : ordered.get((int) rank);
+    }
+
+    /**
+     * Runs a filtered read. Conditions are checked on each record's raw bytes
+     * and reading stops once the limit is reached; engines with an index on a
+     * condition's column read only the records it selects. Like
+     * {@link #stream}, the engine may hold a lock while calling the action, so
+     * do not write to the same model from it.
+     *
+     * @param query The conditions, projection and limit
+     * @param action Called with each result as a String
+     */
+    default void query(Query query, Consumer<String> action) {
+        if (query.getLimit() == 0) {
+            return;
+        }
+
+        CsvRecordParser record = new CsvRecordParser();
+        int found = 0;
+        try (Stream<String> objects = stream(query.getModel())) {
+            Iterator<String> lines = objects.iterator();
+            while (lines.hasNext()) {
+                if (query.matches(record.reset(lines.next()))) {
+                    action.accept(query.project(record));
+                    if (++found == query.getLimit()) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a page of objects in storage order, starting at a cursor. Engines
+     * that can seek read only the page; the others collect the objects with
+     * {@link #scan} first.
+     *
+     * @param model The model name
+     * @param cursor Where the page starts, or null for the first page
+     * @param pageSize The maximum number of objects on the page
+     * @return The page
+     */
+    default Page page(String model, PageCursor cursor, int pageSize) {
+        List<String> all = new ArrayList<>();
+        scan(model, all::add);
+        int from = cursor == null ? 0 : locate(all, cursor);
+        return Page.of(all, from, Math.min(all.size(), from + pageSize));
+    }
+
+    /**
+     * Reads the page of objects that ends just before a cursor. If there are
+     * fewer objects than a page before it, the first page is returned.
+     *
+     * @param model The model name
+     * @param cursor Where the following page starts, or null for the last page
+     * @param pageSize The maximum number of objects on the page
+     * @return The page
+     */
+    default Page pageBefore(String model, PageCursor cursor, int pageSize) {
+        List<String> all = new ArrayList<>();
+        scan(model, all::add);
+        int end = cursor == null ? all.size() : locate(all, cursor);
+        int from = Math.max(0, end - pageSize);
+        return Page.of(all, from, Math.min(all.size(), from + pageSize));
+    }
+
+    /**
+     * Finds where a cursor points in a list of objects: at its record if the
+     * record still exists, otherwise at its recorded position
+     */
+    private static int locate(List<String> all, PageCursor cursor) {
+        long position = Math.min(cursor.getPosition(), all.size());
+        if (position < all.size() && cursor.getId().equals(UniqueColumnIndex.column(all.get((int) position), 0))) {
+            return (int) position;
+        }
+        for (int i = 0; i < all.size(); i++) {
+            if (cursor.getId().equals(UniqueColumnIndex.column(all.get(i), 0))) {
+                return i;
+            }
+        }
+        return (int) position;
+    }
+
+    private static Comparator<String> byColumn(int columnIndex) {
+        return Comparator.<String>comparingDouble(line -> SortedIndex.valueOf(line, columnIndex))
+                .thenComparing(line -> UniqueColumnIndex.column(line, 0));
+    }
+
+    /**
+     * Writes out anything buffered and forces it to disk
+     */
+    void flush();
 }
@@ -2,6 +2,8 @@ package models;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Configuration class for storage settings
@@ -9,9 +11,23 @@ import java.nio.file.Paths;
 public class StorageConfig {
     private static final String DEFAULT_DATA_DIR = "src/main/resources/data/";
     private static final String DEFAULT_FILE_EXT = ".csv";
+    private static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 100;
+    private static final int DEFAULT_WRITE_BEHIND_CAPACITY = 10_000;
+    private static final long DEFAULT_WRITE_BEHIND_FLUSH_MILLIS = 200;
+    private static final long DEFAULT_CACHE_MAX_BYTES = 16L * 1024 * 1024;
     
     private String dataDirectory;
     private String fileExtension;
+    private StorageEngine engine = StorageEngine.CSV;
+    private ReadMode readMode = ReadMode.BUFFERED;
+    private Durability durability = Durability.OS_BUFFERED;
+    private long fsyncIntervalMillis = DEFAULT_FSYNC_INTERVAL_MILLIS;
+    private boolean writeBehind = false;
+    private int writeBehindCapacity = DEFAULT_WRITE_BEHIND_CAPACITY;
+    private long writeBehindFlushMillis = DEFAULT_WRITE_BEHIND_FLUSH_MILLIS;
+    private int cacheMaxEntries = 0;
+    private long cacheMaxBytes = DEFAULT_CACHE_MAX_BYTES;
+    private final Map<String, ColumnType[]> columnTypes = new HashMap<>();
     
     /**
      * Creates a new StorageConfig with default settings
@@ -41,6 +57,17 @@ public class StorageConfig {
         return Paths.get(dataDirectory + modelName + fileExtension);
     }
     
+    /**
+     * Gets the path for a file of a specific model with its own extension
+     * 
+     * @param modelName The name of the model
+     * @param extension The file extension, including the dot
+     * @return The full file path
+     */
+    public Path getPathForModel(String modelName, String extension) {
+        return Paths.get(dataDirectory + modelName + extension);
+    }
+    
     public String getDataDirectory() {
         return dataDirectory;
     }
@@ -56,4 +83,107 @@ public class StorageConfig {
     public void setFileExtension(String fileExtension) {
         this.fileExtension = fileExtension;
     }
+    
+    public StorageEngine getEngine() {
+        return engine;
+    }
+    
+    public void setEngine(StorageEngine engine) {
+        this.engine = engine;
+    }
+    
+    public ReadMode getReadMode() {
+        return readMode;
+    }
+    
+    public void setReadMode(ReadMode readMode) {
+        this.readMode = readMode;
+    }
+    
+    public Durability getDurability() {
+        return durability;
+    }
+    
+    public void setDurability(Durability durability) {
+        this.durability = durability;
+    }
+    
+    public long getFsyncIntervalMillis() {
+        return fsyncIntervalMillis;
+    }
+    
+    public void setFsyncIntervalMillis(long fsyncIntervalMillis) {
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+    
+    public boolean isWriteBehind() {
+        return writeBehind;
+    }
+    
+    /**
+     * Enables buffering writes in memory and writing them in the background
+     * 
+     * @param writeBehind true to wrap the storage in a write-behind buffer
+     */
+    public void setWriteBehind(boolean writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+    
+    public int getWriteBehindCapacity() {
+        return writeBehindCapacity;
+    }
+    
+    public void setWriteBehindCapacity(int writeBehindCapacity) {
+        this.writeBehindCapacity = writeBehindCapacity;
+    }
+    
+    public long getWriteBehindFlushMillis() {
+        return writeBehindFlushMillis;
+    }
+    
+    public void setWriteBehindFlushMillis(long writeBehindFlushMillis) {
+        this.writeBehindFlushMillis = writeBehindFlushMillis;
+    }
+    
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+    
+    /**
+     * Sets how many records are kept in the read cache
+     * 
+     * @param cacheMaxEntries Maximum cached records, 0 disables the cache
+     */
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+    
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+    
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+    
+    /**
+     * Gets the column types of a model for the columnar engine
+     * 
+     * @param modelName The name of the model
+     * @return The column types, or null if none were registered
+     */
+    public ColumnType[] getColumnTypes(String modelName) {
+        return columnTypes.get(modelName);
+    }
+    
+    /**
+     * Registers the column types of a model for the columnar engine.
+     * Models without registered types store every column as a string.
+     * 
+     * @param modelName The name of the model
+     * @param types One type per column, in file header order
+     */
+    public void setColumnTypes(String modelName, ColumnType... types) {
+        columnTypes.put(modelName, types);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package models;
+
+/**
+ * Available on-disk storage engines
+ */
+public enum StorageEngine {
+    /** One CSV file per model, rewritten on update and remove */
+    CSV,
+
+    /** Append-only log per model with tombstones and background compaction */
+    LOG,
+
+    /** One file per column, with packed primitive columns for numbers */
+    COLUMNAR
+}
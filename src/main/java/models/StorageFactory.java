@@ -0,0 +1,43 @@
+package models;
+
+/**
+ * Creates the storage implementation selected in a StorageConfig
+ */
+public class StorageFactory {
+
+    /**
+     * Creates a storage for the configured engine, wrapped in the configured decorators
+     * 
+     * @param config Storage configuration
+     * @return A new storage instance
+     */
+    public static <T> Storage<T> create(StorageConfig config) {
+        Storage<T> storage = switch (config.getEngine()) {
+            case CSV -> new FileStorage<>(config);
+            case LOG -> new LogStructuredStorage<>(config);
+            case COLUMNAR -> new ColumnarStorage<>(config);
+        };
+
+        if (config.isWriteBehind()) {
+            storage = new WriteBehindStorage<>(storage,
+                    config.getWriteBehindCapacity(), config.getWriteBehindFlushMillis());
+        }
+        if (config.getCacheMaxEntries() > 0) {
+            storage = new CachingStorage<>(storage, config.getCacheMaxEntries(), config.getCacheMaxBytes());
+        }
+        return storage;
+    }
+
+    /**
+     * Gets the storage engine underneath any decorators
+     * 
+     * @param storage A storage, possibly decorated
+     * @return The innermost storage
+     */
+    public static <T> Storage<T> engineOf(Storage<T> storage) {
+        while (storage instanceof ForwardingStorage<T> forwarding) {
+            storage = forwarding.getDelegate();
+        }
+        return storage;
+    }
+}
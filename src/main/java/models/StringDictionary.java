@@ -0,0 +1,84 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns small integer codes to the distinct values of a low-cardinality
+ * column. Codes are handed out in first-seen order and never change, and each
+ * value is kept as one shared instance, so repeated values cost a code instead
+ * of a separate String, and grouping can index arrays by code instead of
+ * hashing text.
+ *
+ * Lookups of known values do not lock, so parallel scans can encode and
+ * decode without contending; only adding a new value is synchronized.
+ */
+public class StringDictionary {
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Written only under the lock; a value is stored before size is raised to include it
+    private volatile String[] values = new String[16];
+    private volatile int size;
+
+    /**
+     * Gets the code of a value, adding the value if it is new
+     *
+     * @param value The value to encode
+     * @return The code of the value
+     */
+    public int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+
+        synchronized (this) {
+            code = codes.get(value);
+            if (code == null) {
+                code = size;
+                if (code == values.length) {
+                    values = Arrays.copyOf(values, code * 2);
+                }
+                values[code] = value;
+                size = code + 1;
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Gets the code of a value without adding it
+     *
+     * @param value The value to look up
+     * @return The code, or -1 if the value is not in the dictionary
+     */
+    public int codeOf(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Gets the value for a code
+     *
+     * @param code A code returned by {@link #encode(String)}
+     * @return The shared instance of the value
+     */
+    public String decode(int code) {
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown dictionary code: " + code);
+        }
+        return values[code];
+    }
+
+    /**
+     * Gets the shared instance of a value, adding it if it is new
+     */
+    public String canonical(String value) {
+        return value == null ? null : decode(encode(value));
+    }
+
+    public int size() {
+        return size;
+    }
+}
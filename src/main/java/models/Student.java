@@ -6,15 +6,22 @@ public class Student {
     private String email;
     private int age;
     private String course;
+    private int courseCode;
     private double gpa;
     public static final String FILE_HEADER = "ID,NAME,EMAIL,AGE,COURSE,GPA";
+    public static final ColumnType[] COLUMN_TYPES = {
+            ColumnType.STRING, ColumnType.STRING, ColumnType.STRING,
+            ColumnType.INT, ColumnType.DICTIONARY, ColumnType.DOUBLE
+    };
+    // Courses repeat across many students, so each name is kept once and given a code
+    public static final StringDictionary COURSES = new StringDictionary();
 
     public Student (String id, String name, String email, int age, String course, double gpa) {
         this.id = id;
         this.name = name;
         this.age = age;
         this.email = email;
-        this.course = course;
+        assignCourse(course);
         this.gpa = gpa;
     }
 
@@ -38,6 +45,13 @@ public class Student {
         return course;
     }
 
+    /**
+     * Gets the code of the course in {@link #COURSES}, for grouping and filtering without comparing Strings
+     */
+    public int getCourseCode() {
+        return courseCode;
+    }
+
     public double getGpa() {
         return gpa;
     }
@@ -59,7 +73,12 @@ public class Student {
     }
 
     public void setCourse(String course) {
-        this.course = course;
+        assignCourse(course);
+    }
+
+    private void assignCourse(String course) {
+        this.courseCode = course == null ? -1 : COURSES.encode(course);
+        this.course = course == null ? null : COURSES.decode(courseCode);
     }
 
     public void setGpa(double gpa) {
@@ -0,0 +1,301 @@
+package models;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collector;
+
+/**
+ * Running aggregates over a set of students. They can be filled in one pass,
+ * so the students never need to be held in memory together, and kept up to
+ * date as students are added and removed. Partial results from separate
+ * parts of the data can be combined, so {@link #collector()} computes
+ * everything in one parallel pass. Per-course totals are arrays
+ * indexed by {@link Student#getCourseCode()}, so grouping does not hash
+ * course names.
+ *
+ * The highest and lowest GPAs are tracked with a few of the best and worst
+ * students rather than all of them. Removing students can use those up, in
+ * which case {@link #isStale()} reports that the statistics must be rebuilt.
+ */
+public class StudentStatistics {
+    private static final String[] GPA_RANGES = {
+            "Excellent (3.5 and above)", "Good (3.0 to 3.5)", "Average (2.0 to 3.0)", "Poor (2.0 and below)"
+    };
+    private static final int EXTREMES_TRACKED = 8;
+
+    private long count;
+    private double gpaSum;
+    private long ageSum;
+    private final Extremes highest = new Extremes(true);
+    private final Extremes lowest = new Extremes(false);
+    private final long[] gpaRangeCounts = new long[GPA_RANGES.length];
+    private long[] courseCounts = new long[16];
+    private double[] courseGpaSums = new double[16];
+    // Course codes in the order they were first seen
+    private int[] courseOrder = new int[16];
+    private int courseCount;
+
+    /**
+     * The students with the highest (or lowest) GPAs, best first. As long as it
+     * is not empty it holds exactly the top students of the whole set.
+     */
+    private static class Extremes {
+        private final boolean highest;
+        private final Student[] students = new Student[EXTREMES_TRACKED];
+        private int size;
+        // Set once entries have been removed: the slots freed can only be refilled by a rebuild
+        private boolean partial;
+
+        Extremes(boolean highest) {
+            this.highest = highest;
+        }
+
+        private boolean better(Student a, Student b) {
+            return highest ? a.getGpa() > b.getGpa() : a.getGpa() < b.getGpa();
+        }
+
+        void add(Student student) {
+            if (size == students.length || partial) {
+                // Only a student at least as good as the last one kept is known to belong
+                if (size == 0 || better(students[size - 1], student)) {
+                    return;
+                }
+                if (size == students.length) {
+                    size--;
+                }
+            }
+            int i = size++;
+            while (i > 0 && better(student, students[i - 1])) {
+                students[i] = students[i - 1];
+                i--;
+            }
+            students[i] = student;
+        }
+
+        void remove(String id) {
+            for (int i = 0; i < size; i++) {
+                if (students[i].getId().equals(id)) {
+                    System.arraycopy(students, i + 1, students, i, size - i - 1);
+                    students[--size] = null;
+                    partial = true;
+                    return;
+                }
+            }
+        }
+
+        Student first() {
+            return size == 0 ? null : students[0];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void addAll(Extremes other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.students[i]);
+            }
+            partial |= other.partial;
+        }
+
+        void copyFrom(Extremes other) {
+            System.arraycopy(other.students, 0, students, 0, students.length);
+            size = other.size;
+            partial = other.partial;
+        }
+    }
+
+    /**
+     * Adds a student to the aggregates
+     */
+    public void accept(Student student) {
+        double gpa = student.getGpa();
+        count++;
+        gpaSum += gpa;
+        ageSum += student.getAge();
+        highest.add(student);
+        lowest.add(student);
+        gpaRangeCounts[gpaRangeOf(gpa)]++;
+
+        addToCourse(student.getCourseCode(), 1, gpa);
+    }
+
+    private void addToCourse(int code, long students, double gpaSum) {
+        if (code >= courseCounts.length) {
+            int length = Math.max(code + 1, courseCounts.length * 2);
+            courseCounts = Arrays.copyOf(courseCounts, length);
+            courseGpaSums = Arrays.copyOf(courseGpaSums, length);
+        }
+        if (courseCounts[code] == 0 && !isOrdered(code)) {
+            if (courseCount == courseOrder.length) {
+                courseOrder = Arrays.copyOf(courseOrder, courseCount * 2);
+            }
+            courseOrder[courseCount++] = code;
+        }
+        courseCounts[code] += students;
+        courseGpaSums[code] += gpaSum;
+    }
+
+    private boolean isOrdered(int code) {
+        for (int i = 0; i < courseCount; i++) {
+            if (courseOrder[i] == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the aggregates of other students, such as another part of the same data
+     *
+     * @param other Statistics of students not already added here
+     * @return This instance
+     */
+    public StudentStatistics combine(StudentStatistics other) {
+        count += other.count;
+        gpaSum += other.gpaSum;
+        ageSum += other.ageSum;
+        highest.addAll(other.highest);
+        lowest.addAll(other.lowest);
+        for (int i = 0; i < gpaRangeCounts.length; i++) {
+            gpaRangeCounts[i] += other.gpaRangeCounts[i];
+        }
+
+        for (int i = 0; i < other.courseCount; i++) {
+            int code = other.courseOrder[i];
+            long otherCount = other.courseCounts[code];
+            if (otherCount == 0) {
+                continue;
+            }
+            addToCourse(code, otherCount, other.courseGpaSums[code]);
+        }
+        return this;
+    }
+
+    /**
+     * Creates a collector that computes the statistics of a stream of students.
+     * On a parallel stream each worker aggregates its own part and the parts are combined.
+     */
+    public static Collector<Student, ?, StudentStatistics> collector() {
+        return Collector.of(StudentStatistics::new, StudentStatistics::accept, StudentStatistics::combine,
+                Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    /**
+     * Takes a student that was previously added out of the aggregates
+     */
+    public void remove(Student student) {
+        double gpa = student.getGpa();
+        count--;
+        gpaSum -= gpa;
+        ageSum -= student.getAge();
+        highest.remove(student.getId());
+        lowest.remove(student.getId());
+        gpaRangeCounts[gpaRangeOf(gpa)]--;
+
+        int code = student.getCourseCode();
+        if (code < courseCounts.length && courseCounts[code] > 0) {
+            courseCounts[code]--;
+            courseGpaSums[code] = courseCounts[code] == 0 ? 0.0 : courseGpaSums[code] - gpa;
+        }
+    }
+
+    /**
+     * Checks whether removals used up the tracked highest or lowest students,
+     * so the statistics no longer know them and must be rebuilt
+     */
+    public boolean isStale() {
+        return count > 0 && (highest.isEmpty() || lowest.isEmpty());
+    }
+
+    /**
+     * Creates an independent copy of the current aggregates
+     */
+    public StudentStatistics copy() {
+        StudentStatistics copy = new StudentStatistics();
+        copy.count = count;
+        copy.gpaSum = gpaSum;
+        copy.ageSum = ageSum;
+        copy.highest.copyFrom(highest);
+        copy.lowest.copyFrom(lowest);
+        System.arraycopy(gpaRangeCounts, 0, copy.gpaRangeCounts, 0, gpaRangeCounts.length);
+        copy.courseCounts = courseCounts.clone();
+        copy.courseGpaSums = courseGpaSums.clone();
+        copy.courseOrder = courseOrder.clone();
+        copy.courseCount = courseCount;
+        return copy;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getAverageGpa() {
+        return count == 0 ? 0.0 : gpaSum / count;
+    }
+
+    public double getAverageAge() {
+        return count == 0 ? 0.0 : (double) ageSum / count;
+    }
+
+    /**
+     * @return The student with the highest GPA, or null if there are no students
+     */
+    public Student getHighestGpaStudent() {
+        return highest.first();
+    }
+
+    /**
+     * @return The student with the lowest GPA, or null if there are no students
+     */
+    public Student getLowestGpaStudent() {
+        return lowest.first();
+    }
+
+    /**
+     * Gets the number of students in each GPA range, best range first, leaving out empty ranges
+     */
+    public Map<String, Long> getGpaRanges() {
+        Map<String, Long> ranges = new LinkedHashMap<>();
+        for (int i = 0; i < GPA_RANGES.length; i++) {
+            if (gpaRangeCounts[i] > 0) {
+                ranges.put(GPA_RANGES[i], gpaRangeCounts[i]);
+            }
+        }
+        return ranges;
+    }
+
+    public Map<String, Long> getStudentsPerCourse() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < courseCount; i++) {
+            int code = courseOrder[i];
+            if (courseCounts[code] > 0) {
+                counts.put(Student.COURSES.decode(code), courseCounts[code]);
+            }
+        }
+        return counts;
+    }
+
+    public Map<String, Double> getAverageGpaPerCourse() {
+        Map<String, Double> averages = new LinkedHashMap<>();
+        for (int i = 0; i < courseCount; i++) {
+            int code = courseOrder[i];
+            if (courseCounts[code] > 0) {
+                averages.put(Student.COURSES.decode(code), courseGpaSums[code] / courseCounts[code]);
+            }
+        }
+        return averages;
+    }
+
+    private static int gpaRangeOf(double gpa) {
+        if (gpa >= 3.5) return 0;
+        if (gpa >= 3.0) return 1;
+        if (gpa >= 2.0) return 2;
+        return 3;
+    }
+}
@@ -0,0 +1,338 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Storage decorator that keeps {@link StudentStatistics} for the student model
+ * up to date on every write, so reading them costs nothing at any data size.
+ *
+ * The statistics are computed once, on first use, by the given loader. After
+ * that each add, update, remove and batch operation applies its change to the
+ * aggregates, looking up the previous version of updated and removed records.
+ * They are reloaded only if removals leave the highest or lowest GPA unknown,
+ * or if writing through to storage fails.
+ *
+ * Writes reach the wrapped storage without holding the statistics lock, which
+ * is taken only to apply a write's change, so writers run as concurrently as
+ * the wrapped storage allows. Writes to the same record are ordered by a lock
+ * per record, so each sees the version the one before it stored. A reload
+ * also runs outside the lock and is kept only if no write overlapped it.
+ */
+public class StudentStatisticsStorage extends ForwardingStorage<Student> {
+    private static final int RECORD_LOCKS = 64;
+
+    private final String model;
+    private final Function<String, Student> deserializer;
+    private final Supplier<StudentStatistics> loader;
+    private final Object lock = new Object();
+    private final ReentrantLock[] recordLocks = new ReentrantLock[RECORD_LOCKS];
+
+    // Guarded by lock, null until first loaded
+    private StudentStatistics statistics;
+    // Guarded by lock, so a reload can tell whether a write overlapped it
+    private long writesStarted;
+    private int writesRunning;
+
+    /**
+     * Wraps a storage with maintained statistics
+     *
+     * @param delegate The storage holding the students
+     * @param model The model name of the students
+     * @param deserializer Turns a stored record into a student
+     * @param loader Computes the statistics from scratch
+     */
+    public StudentStatisticsStorage(Storage<Student> delegate, String model,
+                                    Function<String, Student> deserializer, Supplier<StudentStatistics> loader) {
+        super(delegate);
+        this.model = model;
+        this.deserializer = deserializer;
+        this.loader = loader;
+        for (int i = 0; i < RECORD_LOCKS; i++) {
+            recordLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the statistics, loading them if they are not known
+     * yet. A load that overlaps writes is returned but not kept, since it may
+     * have missed some of them, and the next call loads again.
+     */
+    public StudentStatistics getStatistics() {
+        long startedBefore;
+        synchronized (lock) {
+            if (statistics != null && !statistics.isStale()) {
+                return statistics.copy();
+            }
+            startedBefore = writesRunning == 0 ? writesStarted : -1;
+        }
+
+        StudentStatistics loaded = loader.get();
+        synchronized (lock) {
+            if (writesStarted == startedBefore && (statistics == null || statistics.isStale())) {
+                statistics = loaded;
+                return loaded.copy();
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void add(Map<String, Object> map) {
+        if (!model.equals(map.get("model").toString())) {
+            delegate.add(map);
+            return;
+        }
+
+        StudentStatistics target = begin();
+        boolean stored = false;
+        try {
+            delegate.add(map);
+            stored = true;
+        } finally {
+            end(target, stored, false, current -> current.accept((Student) map.get("obj")));
+        }
+    }
+
+    @Override
+    public void update(String model, String id, Student obj) {
+        if (!this.model.equals(model)) {
+            delegate.update(model, id, obj);
+            return;
+        }
+
+        ReentrantLock recordLock = recordLock(id);
+        recordLock.lock();
+        try {
+            StudentStatistics target = begin();
+            Student old = null;
+            boolean stored = false;
+            try {
+                old = target == null ? null : find(id);
+                delegate.update(model, id, obj);
+                stored = true;
+            } finally {
+                Student previous = old;
+                end(target, stored, false, current -> {
+                    if (previous != null) {
+                        current.remove(previous);
+                        current.accept(obj);
+                    }
+                });
+            }
+        } finally {
+            recordLock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String model, String id) {
+        if (!this.model.equals(model)) {
+            delegate.remove(model, id);
+            return;
+        }
+
+        ReentrantLock recordLock = recordLock(id);
+        recordLock.lock();
+        try {
+            StudentStatistics target = begin();
+            Student old = null;
+            boolean stored = false;
+            try {
+                old = target == null ? null : find(id);
+                delegate.remove(model, id);
+                stored = true;
+            } finally {
+                Student previous = old;
+                end(target, stored, false, current -> {
+                    if (previous != null) {
+                        current.remove(previous);
+                    }
+                });
+            }
+        } finally {
+            recordLock.unlock();
+        }
+    }
+
+    @Override
+    public void batchAdd(String model, List<Student> objects, String fileHeader) {
+        if (!this.model.equals(model) || objects == null) {
+            delegate.batchAdd(model, objects, fileHeader);
+            return;
+        }
+
+        StudentStatistics target = begin();
+        boolean stored = false;
+        try {
+            delegate.batchAdd(model, objects, fileHeader);
+            stored = true;
+        } finally {
+            // Part of a failed batch may have been stored
+            end(target, stored, true, current -> objects.forEach(current::accept));
+        }
+    }
+
+    @Override
+    public void batchUpdate(String model, Map<String, Student> objects) {
+        if (!this.model.equals(model) || objects == null) {
+            delegate.batchUpdate(model, objects);
+            return;
+        }
+
+        TreeSet<Integer> stripes = lockRecords(objects.keySet());
+        try {
+            StudentStatistics target = begin();
+            List<Student> old = new ArrayList<>();
+            boolean stored = false;
+            try {
+                if (target != null) {
+                    for (String id : objects.keySet()) {
+                        Student student = find(id);
+                        if (student != null) {
+                            old.add(student);
+                        }
+                    }
+                }
+
+                delegate.batchUpdate(model, objects);
+                stored = true;
+            } finally {
+                // Part of a failed batch may have been stored
+                end(target, stored, true, current -> {
+                    for (Student student : old) {
+                        current.remove(student);
+                        current.accept(objects.get(student.getId()));
+                    }
+                });
+            }
+        } finally {
+            unlockRecords(stripes);
+        }
+    }
+
+    @Override
+    public void batchRemove(String model, Collection<String> ids) {
+        if (!this.model.equals(model) || ids == null) {
+            delegate.batchRemove(model, ids);
+            return;
+        }
+
+        TreeSet<Integer> stripes = lockRecords(ids);
+        try {
+            StudentStatistics target = begin();
+            List<Student> old = new ArrayList<>();
+            boolean stored = false;
+            try {
+                if (target != null) {
+                    // Once per record, even if the batch names it twice
+                    for (String id : new HashSet<>(ids)) {
+                        Student student = find(id);
+                        if (student != null) {
+                            old.add(student);
+                        }
+                    }
+                }
+
+                delegate.batchRemove(model, ids);
+                stored = true;
+            } finally {
+                // Part of a failed batch may have been stored
+                end(target, stored, true, current -> old.forEach(current::remove));
+            }
+        } finally {
+            unlockRecords(stripes);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            delegate.flush();
+        } catch (RuntimeException e) {
+            // Buffered writes already counted may not have been stored
+            synchronized (lock) {
+                statistics = null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Registers a write to the student model that is about to start
+     *
+     * @return The statistics to apply it to, or null if they are not loaded
+     *         and there is nothing to keep up to date
+     */
+    private StudentStatistics begin() {
+        synchronized (lock) {
+            writesStarted++;
+            writesRunning++;
+            return statistics;
+        }
+    }
+
+    /**
+     * Applies a finished write to the statistics it started with
+     *
+     * @param stored Whether the wrapped storage took the write
+     * @param partial Whether a write that failed may have stored part of its change
+     * @param change Applies the write's change to the statistics
+     */
+    private void end(StudentStatistics target, boolean stored, boolean partial, Consumer<StudentStatistics> change) {
+        synchronized (lock) {
+            writesRunning--;
+            if (!stored) {
+                if (partial) {
+                    statistics = null;
+                }
+            } else if (target != null && statistics == target) {
+                change.accept(statistics);
+            }
+        }
+    }
+
+    private ReentrantLock recordLock(String id) {
+        return recordLocks[stripe(id)];
+    }
+
+    /**
+     * Locks the records of a batch, taking their locks in index order so two
+     * batches cannot wait for each other
+     *
+     * @return The locks taken, for {@link #unlockRecords}
+     */
+    private TreeSet<Integer> lockRecords(Collection<String> ids) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String id : ids) {
+            stripes.add(stripe(id));
+        }
+        for (int stripe : stripes) {
+            recordLocks[stripe].lock();
+        }
+        return stripes;
+    }
+
+    private void unlockRecords(TreeSet<Integer> stripes) {
+        for (int stripe : stripes.descendingSet()) {
+            recordLocks[stripe].unlock();
+        }
+    }
+
+    private static int stripe(String id) {
+        return Math.floorMod(id.hashCode(), RECORD_LOCKS);
+    }
+
+    private Student find(String id) {
+        String line = delegate.get(model, id);
+        return line == null || line.isEmpty() ? null : deserializer.apply(line);
+    }
+}
@@ -0,0 +1,159 @@
+package models;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory index from the case-folded value of one column to the ID of the
+ * record holding it. Values are expected to be unique, but duplicates already
+ * present in a file are tracked so that removing one copy keeps the others.
+ */
+public class UniqueColumnIndex {
+    private final int columnIndex;
+    private final Map<String, String> ids = new HashMap<>();
+    private final Map<String, Set<String>> duplicates = new HashMap<>();
+
+    public UniqueColumnIndex(int columnIndex) {
+        this.columnIndex = columnIndex;
+    }
+
+    /**
+     * Builds an index for a column by scanning a model file once
+     *
+     * @param filePath The model file
+     * @param columnIndex The column to index (0-based)
+     * @return The index, empty if the file does not exist
+     * @throws IOException If the file cannot be read
+     */
+    public static UniqueColumnIndex build(Path filePath, int columnIndex) throws IOException {
+        UniqueColumnIndex index = new UniqueColumnIndex(columnIndex);
+        if (!Files.exists(filePath)) {
+            return index;
+        }
+
+        // Parse the raw bytes so only the indexed value and the ID are decoded
+        boolean[] header = {true};
+        MappedFileReader.forEachRecord(filePath, new CsvRecordParser(), record -> {
+            if (header[0]) {
+                header[0] = false;
+            } else if (record.getFieldCount() > columnIndex) {
+                index.add(record.getString(columnIndex), record.getString(0));
+            }
+        });
+        return index;
+    }
+
+    /**
+     * Builds an index for a column from lines already in memory
+     *
+     * @param lines The lines of a model file, header first
+     * @param columnIndex The column to index (0-based)
+     * @return The index
+     */
+    public static UniqueColumnIndex build(List<String> lines, int columnIndex) {
+        UniqueColumnIndex index = new UniqueColumnIndex(columnIndex);
+        for (int i = 1; i < lines.size(); i++) {
+            index.add(lines.get(i));
+        }
+        return index;
+    }
+
+    public int getColumnIndex() {
+        return columnIndex;
+    }
+
+    /**
+     * Indexes a record line
+     */
+    public void add(String line) {
+        String value = column(line, columnIndex);
+        if (value == null) {
+            return;
+        }
+
+        add(value, column(line, 0));
+    }
+
+    private void add(String value, String id) {
+        String key = fold(value);
+        String existing = ids.putIfAbsent(key, id);
+        if (existing != null && !existing.equals(id)) {
+            duplicates.computeIfAbsent(key, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    /**
+     * Removes a record line from the index
+     */
+    public void remove(String line) {
+        String value = column(line, columnIndex);
+        if (value == null) {
+            return;
+        }
+
+        String key = fold(value);
+        String id = column(line, 0);
+        Set<String> others = duplicates.get(key);
+        if (others != null && others.remove(id)) {
+            if (others.isEmpty()) {
+                duplicates.remove(key);
+            }
+        } else if (id.equals(ids.get(key))) {
+            if (others == null) {
+                ids.remove(key);
+            } else {
+                // Promote one of the duplicates to be the indexed holder
+                String next = others.iterator().next();
+                others.remove(next);
+                if (others.isEmpty()) {
+                    duplicates.remove(key);
+                }
+                ids.put(key, next);
+            }
+        }
+    }
+
+    /**
+     * Checks whether a value is held by any record other than the excluded one
+     *
+     * @param value The value to check
+     * @param excludeId ID to ignore, or null
+     * @return true if the value exists, false otherwise
+     */
+    public boolean contains(String value, String excludeId) {
+        String key = fold(value);
+        String id = ids.get(key);
+        if (id == null) {
+            return false;
+        }
+        return !id.equals(excludeId) || duplicates.containsKey(key);
+    }
+
+    private static String fold(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Extracts a column from a comma separated line without splitting the whole line
+     *
+     * @return The column value, or null if the line has fewer columns
+     */
+    static String column(String line, int columnIndex) {
+        int start = 0;
+        for (int i = 0; i < columnIndex; i++) {
+            start = line.indexOf(',', start) + 1;
+            if (start == 0) {
+                return null;
+            }
+        }
+        int end = line.indexOf(',', start);
+        return end < 0 ? line.substring(start) : line.substring(start, end);
+    }
+}
@@ -0,0 +1,601 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import customexceptions.StorageException;
+
+/**
+ * Storage decorator that acknowledges writes from an in-memory buffer and
+ * writes them to the wrapped storage in the background.
+ *
+ * Pending writes are kept per record, so repeated changes to the same record
+ * collapse into one. A flush turns them into one batchRemove, one batchAdd and
+ * one batchUpdate per model. Lookups check the buffer first, and scans and column
+ * checks flush before reading, so callers always see their own writes. When
+ * the buffer is full, writers wait for the background flush to make room.
+ *
+ * If the wrapped storage fails, the changes it did not take go back into the
+ * buffer, under any newer changes to the same records, and are retried on
+ * the next flush. Until a flush gets through, flush() and every write throw
+ * the error, so a failure is never lost behind writes that were already
+ * acknowledged.
+ */
+public class WriteBehindStorage<T> extends ForwardingStorage<T> {
+
+    private enum Kind { ADD, UPDATE, REMOVE }
+
+    /**
+     * The latest buffered change to one record
+     */
+    private class PendingWrite {
+        final Kind kind;
+        final T obj;
+        final String fileHeader;
+
+        PendingWrite(Kind kind, T obj, String fileHeader) {
+            this.kind = kind;
+            this.obj = obj;
+            this.fileHeader = fileHeader;
+        }
+    }
+
+    private final int capacity;
+    private final long flushIntervalMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Object flushLock = new Object();
+
+    // Guarded by lock
+    private final Map<String, LinkedHashMap<String, PendingWrite>> pending = new HashMap<>();
+    private final Map<String, Map<String, PendingWrite>> inFlight = new HashMap<>();
+    private int pendingCount;
+    // Values of the buffered records, by model and column, for the columns valueExistsInColumn was asked about
+    private final Map<String, Map<Integer, UniqueColumnIndex>> bufferedValues = new HashMap<>();
+    // Buffered updates and removes, which leave stored column values stale until written
+    private int bufferedChanges;
+    // Set while buffered changes are waiting to be retried after a failed flush
+    private StorageException lastError;
+
+    /**
+     * Wraps a storage with a write-behind buffer
+     *
+     * @param delegate The storage that receives the writes
+     * @param capacity Maximum number of buffered records before writers wait
+     * @param flushIntervalMillis How often the buffer is written out
+     */
+    public WriteBehindStorage(Storage<T> delegate, int capacity, long flushIntervalMillis) {
+        super(delegate);
+        this.capacity = capacity;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        Thread flusher = new Thread(this::runFlusher, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void add(Map<String, Object> map) {
+        String model = map.get("model").toString();
+        T obj = (T) map.get("obj");
+        buffer(model, idOf(obj), new PendingWrite(Kind.ADD, obj, map.get("fileHeader").toString()));
+    }
+
+    @Override
+    public void update(String model, String id, T obj) {
+        // Fail now rather than in the background if there is nothing to update
+        if (get(model, id).isEmpty()) {
+            throw new StorageException("Record with ID " + id + " not found");
+        }
+        buffer(model, id, new PendingWrite(Kind.UPDATE, obj, null));
+    }
+
+    @Override
+    public void remove(String model, String id) {
+        buffer(model, id, new PendingWrite(Kind.REMOVE, null, null));
+    }
+
+    @Override
+    public void batchAdd(String model, List<T> objects, String fileHeader) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+        for (T obj : objects) {
+            buffer(model, idOf(obj), new PendingWrite(Kind.ADD, obj, fileHeader));
+        }
+    }
+
+    @Override
+    public void batchUpdate(String model, Map<String, T> objects) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        boolean anyUpdates = false;
+        for (Map.Entry<String, T> entry : objects.entrySet()) {
+            if (!get(model, entry.getKey()).isEmpty()) {
+                buffer(model, entry.getKey(), new PendingWrite(Kind.UPDATE, entry.getValue(), null));
+                anyUpdates = true;
+            }
+        }
+
+        if (!anyUpdates) {
+            throw new StorageException("No matching records found for batch update");
+        }
+    }
+
+    @Override
+    public void batchRemove(String model, Collection<String> ids) {
+        if (ids == null) {
+            return;
+        }
+        for (String id : ids) {
+            buffer(model, id, new PendingWrite(Kind.REMOVE, null, null));
+        }
+    }
+
+    @Override
+    public String get(String model, String id) {
+        lock.lock();
+        try {
+            PendingWrite write = find(pending.get(model), id);
+            if (write == null) {
+                write = find(inFlight.get(model), id);
+            }
+            if (write != null) {
+                return write.kind == Kind.REMOVE ? "" : write.obj.toString();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.get(model, id);
+    }
+
+    @Override
+    public List<String> getAll(String model) {
+        flush();
+        return delegate.getAll(model);
+    }
+
+    @Override
+    public void scan(String model, Consumer<String> action) {
+        flush();
+        delegate.scan(model, action);
+    }
+
+    @Override
+    public Stream<String> stream(String model) {
+        flush();
+        return delegate.stream(model);
+    }
+
+    @Override
+    public Set<String> distinctValues(String model, int columnIndex) {
+        flush();
+        return delegate.distinctValues(model, columnIndex);
+    }
+
+    @Override
+    public void scanWhere(String model, int columnIndex, String value, Consumer<String> action) {
+        flush();
+        delegate.scanWhere(model, columnIndex, value, action);
+    }
+
+    @Override
+    public void scanRange(String model, int columnIndex, double min, double max, Consumer<String> action) {
+        flush();
+        delegate.scanRange(model, columnIndex, min, max, action);
+    }
+
+    @Override
+    public List<String> top(String model, int columnIndex, int n) {
+        flush();
+        return delegate.top(model, columnIndex, n);
+    }
+
+    @Override
+    public long countBelow(String model, int columnIndex, double value) {
+        flush();
+        return delegate.countBelow(model, columnIndex, value);
+    }
+
+    @Override
+    public String atRank(String model, int columnIndex, long rank) {
+        flush();
+        return delegate.atRank(model, columnIndex, rank);
+    }
+
+    @Override
+    public void query(Query query, Consumer<String> action) {
+        flush();
+        delegate.query(query, action);
+    }
+
+    @Override
+    public Page page(String model, PageCursor cursor, int pageSize) {
+        flush();
+        return delegate.page(model, cursor, pageSize);
+    }
+
+    @Override
+    public Page pageBefore(String model, PageCursor cursor, int pageSize) {
+        flush();
+        return delegate.pageBefore(model, cursor, pageSize);
+    }
+
+    /**
+     * Checks buffered records first, through an index of their values kept
+     * up to date as records are buffered and written. Buffered adds can be
+     * answered without touching storage, but buffered updates and removes
+     * may make stored values stale, so those force a flush before asking the
+     * wrapped storage.
+     */
+    @Override
+    public boolean valueExistsInColumn(String model, String columnValue, int columnIndex, String... excludeId) {
+        String exclude = excludeId.length > 0 ? excludeId[0] : null;
+        boolean stale;
+
+        lock.lock();
+        try {
+            if (bufferedIndex(model, columnIndex).contains(columnValue, exclude)) {
+                return true;
+            }
+            stale = bufferedChanges > 0;
+        } finally {
+            lock.unlock();
+        }
+
+        if (stale) {
+            flush();
+        }
+        return delegate.valueExistsInColumn(model, columnValue, columnIndex, excludeId);
+    }
+
+    /**
+     * Writes out every buffered change and waits for it to reach the wrapped storage
+     *
+     * @throws StorageException If the wrapped storage failed and buffered changes are still waiting to be retried
+     */
+    @Override
+    public void flush() {
+        writeBuffered();
+        delegate.flush();
+
+        lock.lock();
+        try {
+            if (lastError != null) {
+                throw lastError;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String idOf(T obj) {
+        String line = obj.toString();
+        int comma = line.indexOf(',');
+        return comma < 0 ? line : line.substring(0, comma);
+    }
+
+    /**
+     * Gets the index of a column of the buffered records, building it from
+     * the buffer the first time. Must be called holding lock.
+     */
+    private UniqueColumnIndex bufferedIndex(String model, int columnIndex) {
+        Map<Integer, UniqueColumnIndex> indexes = bufferedValues.computeIfAbsent(model, k -> new HashMap<>());
+        UniqueColumnIndex index = indexes.get(columnIndex);
+        if (index == null) {
+            index = new UniqueColumnIndex(columnIndex);
+            Map<String, PendingWrite> newer = pending.getOrDefault(model, new LinkedHashMap<>());
+            for (Map.Entry<String, PendingWrite> entry : inFlight.getOrDefault(model, Map.of()).entrySet()) {
+                if (!newer.containsKey(entry.getKey()) && entry.getValue().kind != Kind.REMOVE) {
+                    index.add(entry.getValue().obj.toString());
+                }
+            }
+            for (PendingWrite write : newer.values()) {
+                if (write.kind != Kind.REMOVE) {
+                    index.add(write.obj.toString());
+                }
+            }
+            indexes.put(columnIndex, index);
+        }
+        return index;
+    }
+
+    /**
+     * Updates the buffered value indexes when the buffered change that
+     * decides how a record reads is replaced. Must be called holding lock.
+     *
+     * @param before The change that decided it, or null if there was none
+     * @param after The change that decides it now, or null if there is none
+     */
+    private void reindex(String model, PendingWrite before, PendingWrite after) {
+        Map<Integer, UniqueColumnIndex> indexes = bufferedValues.get(model);
+        if (indexes == null || before == after) {
+            return;
+        }
+        String removed = before == null || before.kind == Kind.REMOVE ? null : before.obj.toString();
+        String added = after == null || after.kind == Kind.REMOVE ? null : after.obj.toString();
+        for (UniqueColumnIndex index : indexes.values()) {
+            if (removed != null) {
+                index.remove(removed);
+            }
+            if (added != null) {
+                index.add(added);
+            }
+        }
+    }
+
+    private int countChanges(Map<String, PendingWrite> writes) {
+        if (writes == null) {
+            return 0;
+        }
+        int changes = 0;
+        for (PendingWrite write : writes.values()) {
+            if (write.kind != Kind.ADD) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+
+    private PendingWrite find(Map<String, PendingWrite> writes, String id) {
+        return writes == null ? null : writes.get(id);
+    }
+
+    /**
+     * Adds a change to the buffer, merging it with an earlier change to the
+     * same record where possible. Changes that cannot be merged (such as an
+     * add after a remove) flush the buffer first to keep them in order.
+     */
+    private void buffer(String model, String id, PendingWrite write) {
+        while (true) {
+            lock.lock();
+            try {
+                throwIfFailed();
+                while (pendingCount >= capacity) {
+                    flushNeeded.signal();
+                    notFull.awaitUninterruptibly();
+                    throwIfFailed();
+                }
+
+                LinkedHashMap<String, PendingWrite> writes = pending.computeIfAbsent(model, k -> new LinkedHashMap<>());
+                PendingWrite previous = writes.get(id);
+                if (previous == null) {
+                    writes.put(id, write);
+                    pendingCount++;
+                    bufferedChanges += write.kind == Kind.ADD ? 0 : 1;
+                    reindex(model, find(inFlight.get(model), id), write);
+                    return;
+                }
+
+                PendingWrite merged = merge(previous, write);
+                if (merged != null) {
+                    writes.put(id, merged);
+                    bufferedChanges += (merged.kind == Kind.ADD ? 0 : 1) - (previous.kind == Kind.ADD ? 0 : 1);
+                    reindex(model, previous, merged);
+                    return;
+                }
+                if (previous.kind == Kind.ADD && write.kind == Kind.REMOVE) {
+                    // Added and removed before reaching storage
+                    writes.remove(id);
+                    pendingCount--;
+                    reindex(model, previous, find(inFlight.get(model), id));
+                    notFull.signalAll();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            writeBuffered();
+        }
+    }
+
+    /**
+     * Combines two changes to the same record, or returns null if they must
+     * reach storage separately
+     */
+    private PendingWrite merge(PendingWrite previous, PendingWrite next) {
+        if (previous.kind == Kind.ADD && next.kind == Kind.UPDATE) {
+            return new PendingWrite(Kind.ADD, next.obj, previous.fileHeader);
+        }
+        if (previous.kind == Kind.UPDATE && next.kind == Kind.UPDATE) {
+            return next;
+        }
+        if (next.kind == Kind.REMOVE && previous.kind != Kind.ADD) {
+            return next;
+        }
+        return null;
+    }
+
+    /**
+     * Refuses new writes while earlier ones are failing to reach storage.
+     * Must be called holding lock.
+     */
+    private void throwIfFailed() {
+        if (lastError != null) {
+            throw lastError;
+        }
+    }
+
+    /**
+     * Moves the buffer to in-flight and writes it to the wrapped storage.
+     * Changes that fail go back into the buffer. Only one flush runs at a time.
+     */
+    private void writeBuffered() {
+        synchronized (flushLock) {
+            Map<String, LinkedHashMap<String, PendingWrite>> batch;
+            lock.lock();
+            try {
+                if (pendingCount == 0) {
+                    // Nothing is waiting to be retried
+                    lastError = null;
+                    return;
+                }
+                batch = new HashMap<>(pending);
+                pending.clear();
+                inFlight.putAll(batch);
+                pendingCount = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            Map<String, Set<String>> written = new HashMap<>();
+            StorageException error = null;
+            for (Map.Entry<String, LinkedHashMap<String, PendingWrite>> entry : batch.entrySet()) {
+                Set<String> ids = new HashSet<>();
+                written.put(entry.getKey(), ids);
+                try {
+                    writeModel(entry.getKey(), entry.getValue(), ids);
+                } catch (StorageException e) {
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+
+            lock.lock();
+            try {
+                for (Map.Entry<String, LinkedHashMap<String, PendingWrite>> entry : batch.entrySet()) {
+                    String model = entry.getKey();
+                    Map<String, PendingWrite> writes = entry.getValue();
+                    // How each record read before the batch left in-flight
+                    Map<String, PendingWrite> before = new HashMap<>();
+                    Map<String, PendingWrite> newer = pending.getOrDefault(model, new LinkedHashMap<>());
+                    for (Map.Entry<String, PendingWrite> write : writes.entrySet()) {
+                        before.put(write.getKey(), newer.getOrDefault(write.getKey(), write.getValue()));
+                    }
+
+                    inFlight.remove(model);
+                    bufferedChanges -= countChanges(writes);
+                    if (written.get(model).size() < writes.size()) {
+                        requeue(model, writes, written.get(model));
+                    }
+                    for (Map.Entry<String, PendingWrite> write : before.entrySet()) {
+                        reindex(model, write.getValue(), find(pending.get(model), write.getKey()));
+                    }
+                }
+                lastError = error;
+                // Wake writers waiting for room, so they see the error
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Puts the changes of a failed flush back into the buffer, ahead of the
+     * changes made since and merged with them. Must be called holding lock.
+     *
+     * @param failed The changes that were being written
+     * @param written The IDs whose changes reached storage before the failure
+     */
+    private void requeue(String model, Map<String, PendingWrite> failed, Set<String> written) {
+        LinkedHashMap<String, PendingWrite> newer = pending.remove(model);
+        if (newer != null) {
+            pendingCount -= newer.size();
+            bufferedChanges -= countChanges(newer);
+        }
+        LinkedHashMap<String, PendingWrite> writes = new LinkedHashMap<>();
+
+        for (Map.Entry<String, PendingWrite> entry : failed.entrySet()) {
+            String id = entry.getKey();
+            if (written.contains(id)) {
+                continue;
+            }
+            PendingWrite next = newer == null ? null : newer.remove(id);
+            if (next == null) {
+                writes.put(id, entry.getValue());
+                continue;
+            }
+
+            PendingWrite merged = merge(entry.getValue(), next);
+            if (merged == null) {
+                if (entry.getValue().kind == Kind.ADD && next.kind == Kind.REMOVE) {
+                    // Added and removed before reaching storage
+                    continue;
+                }
+                // Added again over a record storage still holds, which only needs replacing
+                merged = entry.getValue().kind != Kind.ADD && next.kind == Kind.ADD
+                        ? new PendingWrite(Kind.UPDATE, next.obj, null) : next;
+            }
+            writes.put(id, merged);
+        }
+
+        if (newer != null) {
+            writes.putAll(newer);
+        }
+        pendingCount += writes.size();
+        bufferedChanges += countChanges(writes);
+        if (!writes.isEmpty()) {
+            pending.put(model, writes);
+        }
+    }
+
+    /**
+     * Writes the changes to one model, recording the IDs of those that
+     * reached storage so a failure part way through retries only the rest
+     */
+    private void writeModel(String model, Map<String, PendingWrite> writes, Set<String> written) {
+        List<T> adds = new ArrayList<>();
+        Map<String, T> updates = new LinkedHashMap<>();
+        List<String> removes = new ArrayList<>();
+        String fileHeader = null;
+
+        for (Map.Entry<String, PendingWrite> entry : writes.entrySet()) {
+            PendingWrite write = entry.getValue();
+            switch (write.kind) {
+                case ADD -> {
+                    adds.add(write.obj);
+                    fileHeader = write.fileHeader;
+                }
+                case UPDATE -> updates.put(entry.getKey(), write.obj);
+                case REMOVE -> removes.add(entry.getKey());
+            }
+        }
+
+        if (!removes.isEmpty()) {
+            delegate.batchRemove(model, removes);
+            written.addAll(removes);
+        }
+        if (!adds.isEmpty()) {
+            delegate.batchAdd(model, adds, fileHeader);
+            for (T obj : adds) {
+                written.add(idOf(obj));
+            }
+        }
+        if (!updates.isEmpty()) {
+            delegate.batchUpdate(model, updates);
+            written.addAll(updates.keySet());
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            lock.lock();
+            try {
+                flushNeeded.await(flushIntervalMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            writeBuffered();
+        }
+    }
+}
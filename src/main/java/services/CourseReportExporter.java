@@ -0,0 +1,257 @@
+package services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+
+import models.Storage;
+import models.Student;
+import models.StudentStatistics;
+
+/**
+ * Writes one PDF report per course on a pool of workers, one per core, and
+ * then merges them into a single report. Each worker reads only the students
+ * of its course, through the course index where the storage has one, and
+ * renders them into its own document, so rendering, the costly part of a
+ * large export, runs on every core at once.
+ *
+ * Merging holds every page of the course reports in memory, so reports of
+ * more than MAX_MERGED_PAGES pages in total are left as per-course files.
+ */
+public class CourseReportExporter {
+    private static final int COURSE_COLUMN = 4;
+    private static final String COURSES_DIRECTORY = "courses";
+    private static final String MERGED_FILE = "students_by_course.pdf";
+    private static final int MAX_MERGED_PAGES = 10_000;
+
+    private final Storage<Student> storage;
+    private final String model;
+    private final Path reportsDirectory;
+    private final int workers;
+
+    /**
+     * The report written for one course
+     */
+    private static class CourseReport {
+        final Path file;
+        final long students;
+        final int pages;
+
+        CourseReport(Path file, long students, int pages) {
+            this.file = file;
+            this.students = students;
+            this.pages = pages;
+        }
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static class Result {
+        private final List<Path> courseFiles = new ArrayList<>();
+        private Path mergedFile;
+        private long students;
+        private int pages;
+        private long elapsedNanos;
+
+        /**
+         * @return The per-course reports, in course order
+         */
+        public List<Path> getCourseFiles() {
+            return courseFiles;
+        }
+
+        /**
+         * @return The merged report, or null if there were no students or too many pages to merge
+         */
+        public Path getMergedFile() {
+            return mergedFile;
+        }
+
+        public long getStudents() {
+            return students;
+        }
+
+        /**
+         * @return The number of pages over all course reports
+         */
+        public int getPages() {
+            return pages;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+
+        public double getPagesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : pages / getElapsedSeconds();
+        }
+    }
+
+    /**
+     * Creates an exporter using one worker per available core
+     *
+     * @param storage The storage to read the students from
+     * @param model The model name of the students
+     * @param reportsDirectory The directory to write the reports to
+     */
+    public CourseReportExporter(Storage<Student> storage, String model, Path reportsDirectory) {
+        this(storage, model, reportsDirectory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param storage The storage to read the students from
+     * @param model The model name of the students
+     * @param reportsDirectory The directory to write the reports to
+     * @param workers The number of courses rendered at once
+     */
+    public CourseReportExporter(Storage<Student> storage, String model, Path reportsDirectory, int workers) {
+        this.storage = storage;
+        this.model = model;
+        this.reportsDirectory = reportsDirectory;
+        this.workers = Math.max(1, workers);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Writes a report per course under the "courses" folder of the reports
+     * directory, replacing earlier ones, and merges them in course order
+     * unless they have too many pages
+     *
+     * @return The files written, with counts and throughput
+     * @throws IOException If a report cannot be written or merged
+     */
+    public Result export() throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        Path coursesDirectory = reportsDirectory.resolve(COURSES_DIRECTORY);
+        Files.createDirectories(coursesDirectory);
+        clearReports(coursesDirectory);
+
+        List<String> courses = new ArrayList<>(storage.distinctValues(model, COURSE_COLUMN));
+        courses.sort(String.CASE_INSENSITIVE_ORDER);
+
+        List<Future<CourseReport>> reports = new ArrayList<>(courses.size());
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+            for (int i = 0; i < courses.size(); i++) {
+                String course = courses.get(i);
+                Path file = coursesDirectory.resolve(fileName(i + 1, course));
+                reports.add(executor.submit(() -> writeCourseReport(course, file)));
+            }
+
+            for (Future<CourseReport> future : reports) {
+                CourseReport report;
+                try {
+                    report = getReport(future);
+                } catch (IOException e) {
+                    // Skip the courses not started yet rather than waiting for them
+                    executor.shutdownNow();
+                    throw e;
+                }
+                if (report.students > 0) {
+                    result.courseFiles.add(report.file);
+                    result.students += report.students;
+                    result.pages += report.pages;
+                }
+            }
+        }
+
+        Files.deleteIfExists(reportsDirectory.resolve(MERGED_FILE));
+        if (!result.courseFiles.isEmpty() && result.pages <= MAX_MERGED_PAGES) {
+            result.mergedFile = merge(result.courseFiles, reportsDirectory.resolve(MERGED_FILE));
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Renders the report of one course; runs on a worker
+     */
+    private CourseReport writeCourseReport(String course, Path file) throws IOException {
+        StudentStatistics statistics = new StudentStatistics();
+        try (StudentReportWriter report = new StudentReportWriter()) {
+            report.addTitle("Students Report - " + course);
+            report.startStudentTable("Students List");
+            try {
+                storage.scanWhere(model, COURSE_COLUMN, course, line -> {
+                    Student student = StudentService.deserialize(line);
+                    statistics.accept(student);
+                    try {
+                        report.addStudentRow(student);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            report.endStudentTable();
+
+            if (statistics.isEmpty()) {
+                // Every student of the course was removed since the courses were listed
+                return new CourseReport(file, 0, 0);
+            }
+            report.addStatistics(statistics);
+            report.save(file.toString());
+            return new CourseReport(file, report.getRowCount(), report.getPageCount());
+        }
+    }
+
+    private static CourseReport getReport(Future<CourseReport> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Could not write course report: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static Path merge(List<Path> files, Path destination) throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        merger.setDestinationFileName(destination.toString());
+        for (Path file : files) {
+            merger.addSource(file.toFile());
+        }
+        merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
+        return destination;
+    }
+
+    /**
+     * Removes the reports of an earlier export, so reports of courses that no longer exist do not linger
+     */
+    private static void clearReports(Path coursesDirectory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(coursesDirectory, "*.pdf")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Numbers the files in course order, which also keeps names unique when
+     * different course names reduce to the same characters
+     */
+    private static String fileName(int number, String course) {
+        String name = course.trim().replaceAll("[^A-Za-z0-9-]+", "_");
+        return String.format("%03d_%s.pdf", number, name.isEmpty() ? "course" : name);
+    }
+}
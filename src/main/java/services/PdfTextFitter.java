@@ -0,0 +1,148 @@
+package services;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * Measures and fits text for one font and size. The width of each character
+ * is looked up in the font the first time it is seen and cached, so laying
+ * out a row costs a few array reads rather than encoding every string
+ * through the font. Summing character widths gives the same result as
+ * {@link PDFont#getStringWidth(String)}, since the standard fonts used by
+ * the reports are not kerned.
+ *
+ * Characters the font cannot encode are replaced with '?', so an unusual
+ * name cannot stop an export. A fitter is not thread-safe; each report
+ * writer has its own.
+ */
+public final class PdfTextFitter {
+    private static final char REPLACEMENT = '?';
+    private static final String ELLIPSIS = "\u2026";
+
+    private final PDFont font;
+    private final float fontSize;
+    // Width in points by character, NaN until measured and negative if the font cannot encode it
+    private final float[] latinWidths = new float[256];
+    private final Map<Character, Float> otherWidths = new HashMap<>();
+    private final String ellipsis;
+    private final float ellipsisWidth;
+    private final float replacementWidth;
+    private float fittedWidth;
+
+    public PdfTextFitter(PDFont font, float fontSize) throws IOException {
+        this.font = font;
+        this.fontSize = fontSize;
+        Arrays.fill(latinWidths, Float.NaN);
+
+        this.replacementWidth = charWidth(REPLACEMENT);
+        this.ellipsis = charWidth(ELLIPSIS.charAt(0)) >= 0 ? ELLIPSIS : "...";
+        this.ellipsisWidth = width(ellipsis);
+    }
+
+    public PDFont getFont() {
+        return font;
+    }
+
+    public float getFontSize() {
+        return fontSize;
+    }
+
+    /**
+     * Measures text as it would be shown after {@link #fit}
+     *
+     * @param text The text
+     * @return The width in points
+     */
+    public float width(String text) throws IOException {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            float charWidth = charWidth(text.charAt(i));
+            width += charWidth < 0 ? replacementWidth : charWidth;
+        }
+        return width;
+    }
+
+    /**
+     * Fits text into a width, cutting it short and ending it with an
+     * ellipsis if it is too long. The width of the result is kept for
+     * {@link #getFittedWidth()}.
+     *
+     * @param text The text
+     * @param maxWidth The width available in points
+     * @return The text, with characters the font cannot show replaced, no wider than maxWidth
+     */
+    public String fit(String text, float maxWidth) throws IOException {
+        float width = 0;
+        // How much of the text fits together with an ellipsis, in case all of it does not
+        int cut = 0;
+        float cutWidth = 0;
+        boolean showable = true;
+        for (int i = 0; i < text.length(); i++) {
+            float charWidth = charWidth(text.charAt(i));
+            if (charWidth < 0) {
+                showable = false;
+                charWidth = replacementWidth;
+            }
+            width += charWidth;
+            if (width + ellipsisWidth <= maxWidth) {
+                cut = i + 1;
+                cutWidth = width;
+            } else if (width > maxWidth) {
+                fittedWidth = cutWidth + ellipsisWidth;
+                return (showable ? text.substring(0, cut) : replaceUnshowable(text, cut)) + ellipsis;
+            }
+        }
+        fittedWidth = width;
+        return showable ? text : replaceUnshowable(text, text.length());
+    }
+
+    /**
+     * @return The width in points of the text returned by the last call to {@link #fit}
+     */
+    public float getFittedWidth() {
+        return fittedWidth;
+    }
+
+    private String replaceUnshowable(String text, int length) throws IOException {
+        StringBuilder result = new StringBuilder(length + ellipsis.length());
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            result.append(charWidth(c) < 0 ? REPLACEMENT : c);
+        }
+        return result.toString();
+    }
+
+    private float charWidth(char c) throws IOException {
+        if (c < latinWidths.length) {
+            float width = latinWidths[c];
+            if (Float.isNaN(width)) {
+                width = measure(c);
+                latinWidths[c] = width;
+            }
+            return width;
+        }
+
+        Float width = otherWidths.get(c);
+        if (width == null) {
+            width = measure(c);
+            otherWidths.put(c, width);
+        }
+        return width;
+    }
+
+    private float measure(char c) throws IOException {
+        if (Character.isSurrogate(c)) {
+            return -1;
+        }
+        try {
+            return font.getStringWidth(String.valueOf(c)) / 1000 * fontSize;
+        } catch (IllegalArgumentException e) {
+            // Not in the font's encoding
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package services;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import models.CsvRecordParser;
+import models.Storage;
+import models.StorageConfig;
+import models.StorageFactory;
+import models.Student;
+import utils.AppConfig;
+import utils.Benchmark;
+import utils.Validator;
+
+/**
+ * Times validation and import of a dirty CSV file in which 30% of the rows
+ * are rejected: bad ages, bad GPAs, bad emails and missing columns.
+ *
+ * Row validation is timed both ways: with split, {@code parseInt} and the
+ * throwing {@code Validator.isValid*} methods, and with the parser's
+ * {@code tryGet*} calls and the non-throwing {@code Validator.check*}
+ * methods the importer uses. The whole import is then timed into a fresh
+ * CSV store each run. The file comes from a fixed seed; run with
+ * {@code java -cp target/classes:<pdfbox> services.StudentImportBenchmark [rows]}.
+ */
+public class StudentImportBenchmark {
+    private static final int DEFAULT_ROWS = 500_000;
+    private static final int INVALID_PERCENT = 30;
+    private static final String[] COURSES = {"Computer Science", "Mathematics", "Physics", "Software Engineering"};
+
+    public static void main(String[] args) throws Exception {
+        int rows = Benchmark.intArg(args, 0, DEFAULT_ROWS);
+        Path directory = Files.createTempDirectory("import-benchmark");
+        // Imported students take their IDs from a node leased in the data directory
+        AppConfig.getInstance().getStorageConfig().setDataDirectory(directory + "/");
+
+        try {
+            Path file = directory.resolve("dirty.csv");
+            List<String> lines = generate(rows, new Random(42));
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            System.out.printf("%,d rows, %d%% invalid%n", rows, INVALID_PERCENT);
+
+            Benchmark.run("validate: exceptions", rows, () -> validateThrowing(lines));
+            Benchmark.run("validate: checks", rows, () -> validateChecking(lines));
+
+            int[] run = {0};
+            Benchmark.run("import: file", 1, 5, rows, () -> {
+                StorageConfig config = new StorageConfig(directory.resolve("run" + run[0]++) + "/", ".csv");
+                Storage<Student> storage = StorageFactory.create(config);
+                StudentImporter.Result result = new StudentImporter(storage, "Student").importFile(file);
+                return result.getImported() * 1_000_000 + result.getErrorCount();
+            });
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates rows the way the importer did before the non-throwing checks
+     *
+     * @return The valid rows times a million plus the rejected rows
+     */
+    private static long validateThrowing(List<String> lines) {
+        long valid = 0;
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            try {
+                String[] fields = lines.get(i).split(",");
+                if (fields.length < 5) {
+                    errors.add("Line " + (i + 1) + ": Insufficient columns");
+                    continue;
+                }
+                int age = Integer.parseInt(fields[2].trim());
+                Validator.isValidAge(age);
+                double gpa = Double.parseDouble(fields[4].trim());
+                Validator.isValidGpa(gpa);
+                Validator.isValidEmail(fields[1].trim());
+                valid++;
+            } catch (Exception e) {
+                errors.add("Line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return valid * 1_000_000 + errors.size();
+    }
+
+    /**
+     * Validates rows the way the importer's parser workers do
+     *
+     * @return The valid rows times a million plus the rejected rows
+     */
+    private static long validateChecking(List<String> lines) {
+        long valid = 0;
+        List<String> errors = new ArrayList<>();
+        CsvRecordParser fields = new CsvRecordParser();
+        for (int i = 0; i < lines.size(); i++) {
+            fields.reset(lines.get(i));
+            if (fields.getFieldCount() < 5) {
+                errors.add("Line " + (i + 1) + ": Insufficient columns");
+                continue;
+            }
+            int age = fields.tryGetInt(2, Integer.MIN_VALUE);
+            if (!Validator.checkAge(age).isValid()) {
+                errors.add("Line " + (i + 1) + ": Invalid age - " + fields.getString(2));
+                continue;
+            }
+            double gpa = fields.tryGetDouble(4);
+            if (!Validator.checkGpa(gpa).isValid()) {
+                errors.add("Line " + (i + 1) + ": Invalid GPA - " + fields.getString(4));
+                continue;
+            }
+            String email = fields.getString(1);
+            if (!Validator.checkEmail(email).isValid()) {
+                errors.add("Line " + (i + 1) + ": Invalid email - " + email);
+                continue;
+            }
+            valid++;
+        }
+        return valid * 1_000_000 + errors.size();
+    }
+
+    /**
+     * Generates import rows (name, email, age, course, GPA) with unique emails,
+     * of which {@link #INVALID_PERCENT} percent are broken in one field
+     */
+    private static List<String> generate(int rows, Random random) {
+        List<String> lines = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String name = "Student " + i;
+            String email = "student" + i + "@example.com";
+            String age = Integer.toString(18 + random.nextInt(30));
+            String course = COURSES[random.nextInt(COURSES.length)];
+            String gpa = String.format("%.2f", random.nextInt(401) / 100.0);
+
+            if (random.nextInt(100) < INVALID_PERCENT) {
+                switch (random.nextInt(7)) {
+                    case 0 -> age = "twenty";
+                    case 1 -> age = Integer.toString(100 + random.nextInt(50));
+                    case 2 -> gpa = "n/a";
+                    case 3 -> gpa = String.format("%.2f", 4.01 + random.nextInt(300) / 100.0);
+                    case 4 -> email = "student" + i + "@example";
+                    case 5 -> email = "student " + i + "@example.com";
+                    default -> {
+                        lines.add(String.join(",", name, email, age));
+                        continue;
+                    }
+                }
+            }
+            lines.add(String.join(",", name, email, age, course, gpa));
+        }
+        return lines;
+    }
+}
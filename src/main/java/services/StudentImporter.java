@@ -0,0 +1,469 @@
+package services;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import customexceptions.StorageException;
+import models.CsvRecordParser;
+import models.Storage;
+import models.Student;
+import utils.Generators;
+import utils.SnowflakeIdGenerator;
+import utils.Validator;
+
+/**
+ * Imports students from a CSV file (Name,Email,Age,Course,GPA) through a
+ * pipeline of stages joined by bounded queues, each stage on its own
+ * virtual thread:
+ *
+ * 1. A reader cuts the file into chunks of lines.
+ * 2. Parser workers, one per core, parse and validate chunks in parallel.
+ * 3. A single dedup stage puts the chunks back in file order and rejects
+ *    emails already used in the file or in storage.
+ * 4. A writer stores the accepted students in batches with batchAdd and
+ *    flushes each batch before taking the next, so a batch counts as
+ *    imported only once it has reached the storage files, even when the
+ *    storage buffers its writes.
+ *
+ * Only a bounded number of chunks is in the pipeline at once, so the reader
+ * waits whenever a later stage falls behind. Nothing else grows with the
+ * file either: rejected rows are written to an error file as they are found
+ * and only the first few are kept for the summary, and duplicate emails are
+ * caught with the email index of the storage plus the emails of the batches
+ * not yet written, so any size of file imports in constant heap, and each
+ * email check is a lookup rather than a scan.
+ */
+public class StudentImporter {
+    private static final int CHUNK_LINES = 1000;
+    private static final int WRITE_BATCH_SIZE = 5000;
+    private static final int EMAIL_COLUMN = 2;
+    private static final int ERROR_SAMPLE_SIZE = 100;
+
+    private final Storage<Student> storage;
+    private final String model;
+    private final int workers;
+
+    /**
+     * A run of consecutive lines of the input, or the end marker
+     */
+    private static class Chunk {
+        static final Chunk END = new Chunk(-1, 0, List.of());
+
+        final long sequence;
+        final int firstLine;
+        final List<String> lines;
+
+        Chunk(long sequence, int firstLine, List<String> lines) {
+            this.sequence = sequence;
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * The students parsed from a chunk, with their line numbers, and the rejected lines
+     */
+    private static class ParsedChunk {
+        static final ParsedChunk END = new ParsedChunk(-1);
+
+        final long sequence;
+        final List<Student> students = new ArrayList<>();
+        final List<Integer> lineNumbers = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        ParsedChunk(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static class Result {
+        private long rowsRead;
+        private long imported;
+        private long errorCount;
+        private final List<String> errors = new ArrayList<>();
+        private Path errorFile;
+        private long elapsedNanos;
+
+        /**
+         * @return The number of data rows read, not counting the header
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * @return The number of rejected rows
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * @return The first rejected rows, one message each, in file order
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return The file holding every rejected row, or null if none was written
+         */
+        public Path getErrorFile() {
+            return errorFile;
+        }
+
+        public double getElapsedSeconds() {
+            return elapsedNanos / 1_000_000_000.0;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rowsRead / getElapsedSeconds();
+        }
+    }
+
+    /**
+     * Creates an importer using one parser worker per available core
+     *
+     * @param storage The storage to add the students to
+     * @param model The model name of the students
+     */
+    public StudentImporter(Storage<Student> storage, String model) {
+        this(storage, model, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param storage The storage to add the students to
+     * @param model The model name of the students
+     * @param workers The number of parser workers
+     */
+    public StudentImporter(Storage<Student> storage, String model, int workers) {
+        this.storage = storage;
+        this.model = model;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Imports every valid student in a file, keeping only a sample of the rejected rows
+     *
+     * @param filePath The CSV file, with or without a header line
+     * @return The counts, the first rejected rows and the throughput
+     * @throws IOException If the file cannot be read
+     * @throws StorageException If storing a batch fails; earlier batches stay imported
+     */
+    public Result importFile(Path filePath) throws IOException {
+        return importFile(filePath, null);
+    }
+
+    /**
+     * Imports every valid student in a file
+     *
+     * @param filePath The CSV file, with or without a header line
+     * @param errorFile File to write every rejected row to, or null for none; an earlier
+     *                  file is removed and a new one only created when a row is rejected
+     * @return The counts, the first rejected rows and the throughput
+     * @throws IOException If the file cannot be read or the error file written
+     * @throws StorageException If storing a batch fails; earlier batches stay imported, and a
+     *                          storage that buffers its writes keeps retrying the failed one
+     */
+    public Result importFile(Path filePath, Path errorFile) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(workers * 2);
+        BlockingQueue<ParsedChunk> parsed = new ArrayBlockingQueue<>(workers * 2);
+        BlockingQueue<List<Student>> batches = new ArrayBlockingQueue<>(2);
+        // Chunks read but not yet through the dedup stage, including ones waiting to be put back in order
+        Semaphore inFlight = new Semaphore(workers * 4);
+        // Lowercase emails accepted but not yet stored; once stored the storage email index takes over
+        Set<String> unwritten = ConcurrentHashMap.newKeySet();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ErrorLog errors = new ErrorLog(errorFile, result);
+        if (errorFile != null) {
+            Files.deleteIfExists(errorFile);
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8);
+             errors;
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            submit(executor, failure, () -> read(reader, chunks, inFlight, result));
+            for (int i = 0; i < workers; i++) {
+                submit(executor, failure, () -> parse(chunks, parsed));
+            }
+            submit(executor, failure, () -> dedup(parsed, batches, inFlight, unwritten, errors));
+            submit(executor, failure, () -> write(batches, unwritten, result));
+        }
+
+        result.elapsedNanos = System.nanoTime() - start;
+        Exception error = failure.get();
+        if (error instanceof IOException e) {
+            throw e;
+        }
+        if (error != null) {
+            throw new StorageException("Import stopped after " + result.imported + " students were imported: "
+                    + error.getMessage(), error);
+        }
+        return result;
+    }
+
+    /**
+     * Runs a stage, stopping the whole pipeline if it fails
+     */
+    private static void submit(ExecutorService executor, AtomicReference<Exception> failure, Callable<Void> stage) {
+        try {
+            executor.submit(() -> {
+                try {
+                    stage.call();
+                } catch (InterruptedException e) {
+                    // Stopped because another stage failed
+                } catch (Exception e) {
+                    if (failure.compareAndSet(null, e)) {
+                        executor.shutdownNow();
+                    }
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            // An earlier stage already failed and stopped the pipeline
+        }
+    }
+
+    private Void read(BufferedReader reader, BlockingQueue<Chunk> chunks, Semaphore inFlight, Result result)
+            throws IOException, InterruptedException {
+        String line = reader.readLine();
+        int lineNumber = 1;
+        if (line != null && isHeader(line)) {
+            line = reader.readLine();
+            lineNumber++;
+        }
+
+        long sequence = 0;
+        long rows = 0;
+        List<String> lines = new ArrayList<>(CHUNK_LINES);
+        int firstLine = lineNumber;
+        while (line != null) {
+            lines.add(line);
+            rows++;
+            if (lines.size() == CHUNK_LINES) {
+                inFlight.acquire();
+                chunks.put(new Chunk(sequence++, firstLine, lines));
+                lines = new ArrayList<>(CHUNK_LINES);
+                firstLine = lineNumber + 1;
+            }
+            line = reader.readLine();
+            lineNumber++;
+        }
+        if (!lines.isEmpty()) {
+            inFlight.acquire();
+            chunks.put(new Chunk(sequence, firstLine, lines));
+        }
+
+        result.rowsRead = rows;
+        for (int i = 0; i < workers; i++) {
+            chunks.put(Chunk.END);
+        }
+        return null;
+    }
+
+    private static boolean isHeader(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        return line.startsWith("ID") || lower.contains("name") || lower.contains("email");
+    }
+
+    private Void parse(BlockingQueue<Chunk> chunks, BlockingQueue<ParsedChunk> parsed) throws InterruptedException {
+        CsvRecordParser fields = new CsvRecordParser();
+        while (true) {
+            Chunk chunk = chunks.take();
+            if (chunk == Chunk.END) {
+                parsed.put(ParsedChunk.END);
+                return null;
+            }
+
+            ParsedChunk result = new ParsedChunk(chunk.sequence);
+            // One ID per line, taken from the shared generator in a single step
+            SnowflakeIdGenerator.Block ids = Generators.reserveIds(chunk.lines.size());
+            for (int i = 0; i < chunk.lines.size(); i++) {
+                int lineNumber = chunk.firstLine + i;
+                try {
+                    Student student = parseStudent(fields.reset(chunk.lines.get(i)), ids.nextId(), lineNumber, result.errors);
+                    if (student != null) {
+                        result.students.add(student);
+                        result.lineNumbers.add(lineNumber);
+                    }
+                } catch (Exception e) {
+                    result.errors.add("Line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+            parsed.put(result);
+        }
+    }
+
+    /**
+     * Parses and validates one row
+     *
+     * @return The student, or null if the row was rejected and an error added
+     */
+    private static Student parseStudent(CsvRecordParser fields, long id, int lineNumber, List<String> errors) {
+        if (fields.getFieldCount() < 5) {
+            errors.add("Line " + lineNumber + ": Insufficient columns");
+            return null;
+        }
+
+        String name = fields.getString(0);
+        String email = fields.getString(1);
+        String course = fields.getString(3);
+
+        // Checked without exceptions, since a dirty file can reject many rows
+        int age = fields.tryGetInt(2, Integer.MIN_VALUE);
+        if (!Validator.checkAge(age).isValid()) {
+            errors.add("Line " + lineNumber + ": Invalid age - " + fields.getString(2));
+            return null;
+        }
+
+        double gpa = fields.tryGetDouble(4);
+        if (!Validator.checkGpa(gpa).isValid()) {
+            errors.add("Line " + lineNumber + ": Invalid GPA - " + fields.getString(4));
+            return null;
+        }
+
+        if (!Validator.checkEmail(email).isValid()) {
+            errors.add("Line " + lineNumber + ": Invalid email - " + email);
+            return null;
+        }
+
+        return new Student("ST" + id, name, email, age, course, gpa);
+    }
+
+    private Void dedup(BlockingQueue<ParsedChunk> parsed, BlockingQueue<List<Student>> batches, Semaphore inFlight,
+                       Set<String> unwritten, ErrorLog errors) throws IOException, InterruptedException {
+        Map<Long, ParsedChunk> waiting = new HashMap<>();
+        List<Student> batch = new ArrayList<>(WRITE_BATCH_SIZE);
+        long next = 0;
+        int finished = 0;
+
+        while (finished < workers) {
+            ParsedChunk chunk = parsed.take();
+            if (chunk == ParsedChunk.END) {
+                finished++;
+                continue;
+            }
+
+            waiting.put(chunk.sequence, chunk);
+            // Handle chunks in file order, so the first use of an email is the one kept
+            while ((chunk = waiting.remove(next)) != null) {
+                for (String error : chunk.errors) {
+                    errors.add(error);
+                }
+                for (int i = 0; i < chunk.students.size(); i++) {
+                    Student student = chunk.students.get(i);
+                    String email = student.getEmail();
+                    // The writer stores a batch before releasing its emails, so an email is always in one of the two
+                    if (unwritten.contains(email.toLowerCase(Locale.ROOT))) {
+                        errors.add("Line " + chunk.lineNumbers.get(i) + ": Duplicate email in import file - " + email);
+                    } else if (storage.valueExistsInColumn(model, email, EMAIL_COLUMN)) {
+                        errors.add("Line " + chunk.lineNumbers.get(i) + ": Email '" + email
+                                + "' is already registered. Please use a different email address.");
+                    } else {
+                        unwritten.add(email.toLowerCase(Locale.ROOT));
+                        batch.add(student);
+                        if (batch.size() == WRITE_BATCH_SIZE) {
+                            batches.put(batch);
+                            batch = new ArrayList<>(WRITE_BATCH_SIZE);
+                        }
+                    }
+                }
+                next++;
+                inFlight.release();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            batches.put(batch);
+        }
+        batches.put(List.of());
+        return null;
+    }
+
+    private Void write(BlockingQueue<List<Student>> batches, Set<String> unwritten, Result result)
+            throws InterruptedException {
+        while (true) {
+            List<Student> batch = batches.take();
+            if (batch.isEmpty()) {
+                return null;
+            }
+            storage.batchAdd(model, batch, Student.FILE_HEADER);
+            // Write the batch through any write-behind buffer, so a failure stops the import here
+            storage.flush();
+            result.imported += batch.size();
+            for (Student student : batch) {
+                unwritten.remove(student.getEmail().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    /**
+     * Counts rejected rows, keeps the first few for the summary and streams
+     * all of them to the error file, opened when the first one arrives
+     */
+    private static class ErrorLog implements AutoCloseable {
+        private final Path file;
+        private final Result result;
+        private BufferedWriter writer;
+
+        ErrorLog(Path file, Result result) {
+            this.file = file;
+            this.result = result;
+        }
+
+        void add(String error) throws IOException {
+            result.errorCount++;
+            if (result.errors.size() < ERROR_SAMPLE_SIZE) {
+                result.errors.add(error);
+            }
+            if (file == null) {
+                return;
+            }
+            if (writer == null) {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                result.errorFile = file;
+            }
+            writer.write(error);
+            writer.newLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package services;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import models.Student;
+import models.StudentStatistics;
+import utils.Benchmark;
+
+/**
+ * Times drawing a students report with {@link StudentReportWriter}, in rows
+ * per second, from a fixed set of generated students that includes long
+ * names, emails and courses that must be cut, and names the report fonts
+ * cannot show. Run with
+ * {@code java -cp target/classes:<pdfbox> services.StudentReportBenchmark [rows]}.
+ */
+public class StudentReportBenchmark {
+    private static final int DEFAULT_ROWS = 200_000;
+    private static final int DISTINCT_STUDENTS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = Benchmark.intArg(args, 0, DEFAULT_ROWS);
+        List<Student> students = generate(new Random(42));
+        StudentStatistics statistics = students.stream().collect(StudentStatistics.collector());
+        Path file = Files.createTempFile("report-benchmark", ".pdf");
+
+        try {
+            Benchmark.run("report: rows", 1, 5, rows, () -> {
+                try (StudentReportWriter writer = new StudentReportWriter()) {
+                    writer.addTitle("Student Report – 学生");
+                    writer.startStudentTable("All Students");
+                    for (int i = 0; i < rows; i++) {
+                        writer.addStudentRow(students.get(i % students.size()));
+                    }
+                    writer.endStudentTable();
+                    writer.addStatistics(statistics);
+                    writer.save(file.toString());
+                    return writer.getRowCount() * 1_000_000 + writer.getPageCount();
+                }
+            });
+            System.out.printf("%,d KB written%n", Files.size(file) / 1024);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static List<Student> generate(Random random) {
+        List<Student> students = new ArrayList<>(DISTINCT_STUDENTS);
+        for (int i = 0; i < DISTINCT_STUDENTS; i++) {
+            String name = switch (random.nextInt(10)) {
+                case 0 -> "Maximilian Alexander Bartholomew " + i;
+                case 1 -> "李华 " + i;
+                default -> "Student " + i;
+            };
+            String email = random.nextInt(5) == 0
+                    ? "a.very.long.email.address." + i + "@university-example.com"
+                    : "student" + i + "@example.com";
+            String course = random.nextInt(4) == 0 ? "Advanced Computational Linguistics" : "Course " + (i % 20);
+            students.add(new Student("ST" + (7_000_000_000_000_000L + i), name, email,
+                    18 + random.nextInt(30), course, random.nextInt(401) / 100.0));
+        }
+        return students;
+    }
+}
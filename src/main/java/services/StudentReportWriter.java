@@ -0,0 +1,334 @@
+package services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import models.Student;
+import models.StudentStatistics;
+
+/**
+ * Writes a students report PDF one page at a time. Table rows are drawn as
+ * they arrive and a new page is started whenever the current one is full,
+ * so a report of any length can be written from a stream of students. Each
+ * page's content is finished before the next page starts, and the document
+ * keeps its streams in a scratch file once they pass a few megabytes, so
+ * page content does not stay on the heap. The page objects themselves do,
+ * until the document is saved: about 4.6 KB per page, so a report of 29,000
+ * pages (a million students) needs about 130 MB of heap on top of the rest.
+ *
+ * Cells are cut to their column with an ellipsis, measured with cached
+ * character widths, and each row is written as a single text operator.
+ * Titles and statistics lines are cut to the page width the same way, so
+ * no text the fonts cannot show reaches the page.
+ */
+public class StudentReportWriter implements Closeable {
+    private static final float[] TABLE_COLUMNS = {50, 165, 265, 410, 440, 530};
+    private static final float TABLE_RIGHT = 562;
+    private static final float TEXT_LEFT = 50;
+    // Minimum space between the text of a cell and the next column
+    private static final float COLUMN_PADDING = 6;
+    private static final int FONT_SIZE_TITLE = 16;
+    private static final int FONT_SIZE_SECTION = 14;
+    private static final int FONT_SIZE_TEXT = 10;
+    private static final int FONT_SIZE_FOOTER = 8;
+    private static final float PAGE_TOP = 750;
+    // Rows stop here, leaving room for the page number
+    private static final float PAGE_BOTTOM = 60;
+    private static final float ROW_HEIGHT = 20;
+    private static final long MAX_MAIN_MEMORY = 8L * 1024 * 1024;
+
+    private final PdfTextFitter rowFitter;
+    private final PdfTextFitter titleFitter;
+    private final PdfTextFitter sectionFitter;
+    private final PdfTextFitter statisticsFitter;
+    // Cell texts and the moves between them, reused for every row
+    private final Object[] rowText = new Object[TABLE_COLUMNS.length * 2 - 1];
+    private final PDDocument document;
+    private PDPageContentStream contentStream;
+    // Whether the rows of the current page have a text object open
+    private boolean inRows;
+    private float yPosition;
+    private int pageCount;
+    private long rowCount;
+
+    public StudentReportWriter() throws IOException {
+        this.rowFitter = new PdfTextFitter(PDType1Font.TIMES_ROMAN, FONT_SIZE_TEXT);
+        this.titleFitter = new PdfTextFitter(PDType1Font.TIMES_BOLD, FONT_SIZE_TITLE);
+        this.sectionFitter = new PdfTextFitter(PDType1Font.TIMES_BOLD, FONT_SIZE_SECTION);
+        this.statisticsFitter = new PdfTextFitter(PDType1Font.TIMES_BOLD, FONT_SIZE_TEXT);
+        this.document = new PDDocument(MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY));
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return The number of student rows written
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Adds the report title at the current position
+     */
+    public void addTitle(String title) throws IOException {
+        ensureSpace(30);
+        contentStream.beginText();
+        contentStream.newLineAtOffset(TEXT_LEFT, yPosition);
+        showLine(titleFitter, title);
+        contentStream.endText();
+
+        yPosition -= 30;
+    }
+
+    /**
+     * Adds a table with a row per student, repeating the header on every page it spans
+     *
+     * @param title The section title
+     * @param students The students, read once in order
+     */
+    public void addStudentTable(String title, Iterator<Student> students) throws IOException {
+        startStudentTable(title);
+        while (students.hasNext()) {
+            addStudentRow(students.next());
+        }
+        endStudentTable();
+    }
+
+    /**
+     * Starts a student table, for callers that are handed the students one at a time
+     *
+     * @param title The section title
+     */
+    public void startStudentTable(String title) throws IOException {
+        // Keep the section title with the header and at least one row
+        ensureSpace(20 + 20 + ROW_HEIGHT);
+        contentStream.beginText();
+        contentStream.newLineAtOffset(TEXT_LEFT, yPosition);
+        showLine(sectionFitter, title);
+        contentStream.endText();
+        yPosition -= 20;
+
+        drawTableHeader();
+    }
+
+    /**
+     * Adds a row to the table started last, moving to a new page if this one is full
+     */
+    public void addStudentRow(Student student) throws IOException {
+        if (yPosition < PAGE_BOTTOM) {
+            newPage();
+            drawTableHeader();
+        }
+        drawTableRow(student);
+    }
+
+    public void endStudentTable() throws IOException {
+        endRows();
+        // Add extra spacing after the table
+        yPosition -= 20;
+    }
+
+    private void drawTableHeader() throws IOException {
+        contentStream.setFont(PDType1Font.TIMES_BOLD, FONT_SIZE_TEXT);
+        contentStream.beginText();
+        contentStream.newLineAtOffset(TABLE_COLUMNS[0], yPosition);
+        contentStream.showText("ID");
+        contentStream.newLineAtOffset(TABLE_COLUMNS[1] - TABLE_COLUMNS[0], 0);
+        contentStream.showText("NAME");
+        contentStream.newLineAtOffset(TABLE_COLUMNS[2] - TABLE_COLUMNS[1], 0);
+        contentStream.showText("EMAIL");
+        contentStream.newLineAtOffset(TABLE_COLUMNS[3] - TABLE_COLUMNS[2], 0);
+        contentStream.showText("AGE");
+        contentStream.newLineAtOffset(TABLE_COLUMNS[4] - TABLE_COLUMNS[3], 0);
+        contentStream.showText("COURSE");
+        contentStream.newLineAtOffset(TABLE_COLUMNS[5] - TABLE_COLUMNS[4], 0);
+        contentStream.showText("GPA");
+        contentStream.endText();
+
+        // Header line
+        contentStream.setLineWidth(0.5f);
+        contentStream.moveTo(TABLE_COLUMNS[0], yPosition - 5);
+        contentStream.lineTo(TABLE_RIGHT, yPosition - 5);
+        contentStream.stroke();
+
+        yPosition -= 20;
+        contentStream.setFont(PDType1Font.TIMES_ROMAN, FONT_SIZE_TEXT);
+    }
+
+    /**
+     * Draws a row with one text operator. The cells are fitted to their
+     * columns, the moves to the next column are given as positioning
+     * numbers, and all rows of a page share one text object.
+     */
+    private void drawTableRow(Student student) throws IOException {
+        if (!inRows) {
+            contentStream.beginText();
+            contentStream.newLineAtOffset(TABLE_COLUMNS[0], yPosition);
+            inRows = true;
+        } else {
+            contentStream.newLineAtOffset(0, -ROW_HEIGHT);
+        }
+
+        setCell(0, student.getId());
+        setCell(1, student.getName());
+        setCell(2, student.getEmail());
+        setCell(3, String.valueOf(student.getAge()));
+        setCell(4, student.getCourse());
+        setCell(5, String.format("%.2f", student.getGpa()));
+        contentStream.showTextWithPositioning(rowText);
+
+        yPosition -= ROW_HEIGHT;
+        rowCount++;
+    }
+
+    private void setCell(int column, String text) throws IOException {
+        boolean last = column == TABLE_COLUMNS.length - 1;
+        float columnWidth = (last ? TABLE_RIGHT : TABLE_COLUMNS[column + 1]) - TABLE_COLUMNS[column];
+        rowText[column * 2] = rowFitter.fit(text, columnWidth - COLUMN_PADDING);
+        if (!last) {
+            // Moves on to the next column, in thousandths of the font size
+            rowText[column * 2 + 1] = -(columnWidth - rowFitter.getFittedWidth()) * 1000 / FONT_SIZE_TEXT;
+        }
+    }
+
+    private void endRows() throws IOException {
+        if (inRows) {
+            contentStream.endText();
+            inRows = false;
+        }
+    }
+
+    /**
+     * Adds the statistics section, on a new page if it does not fit on the current one
+     */
+    public void addStatistics(StudentStatistics statistics) throws IOException {
+        Map<String, Long> gpaRanges = statistics.getGpaRanges();
+        ensureSpace(20 + 20 + 15 * 4 + 20 + 15 * gpaRanges.size());
+
+        // Statistics title
+        contentStream.beginText();
+        contentStream.newLineAtOffset(TEXT_LEFT, yPosition);
+        showLine(sectionFitter, "Statistics");
+
+        // Basic statistics
+
+        // Student count
+        contentStream.newLineAtOffset(0, -20);
+        showLine(statisticsFitter, "Number of Students: " + statistics.getCount());
+
+        // Average GPA
+        contentStream.newLineAtOffset(0, -15);
+        showLine(statisticsFitter, String.format("Average GPA: %.2f", statistics.getAverageGpa()));
+
+        // Highest GPA
+        Student highestGpaStudent = statistics.getHighestGpaStudent();
+        contentStream.newLineAtOffset(0, -15);
+        showLine(statisticsFitter, String.format(
+            "Highest GPA: %.2f (%s)",
+            highestGpaStudent.getGpa(),
+            highestGpaStudent.getName()
+        ));
+
+        // Lowest GPA
+        Student lowestGpaStudent = statistics.getLowestGpaStudent();
+        contentStream.newLineAtOffset(0, -15);
+        showLine(statisticsFitter, String.format(
+            "Lowest GPA: %.2f (%s)",
+            lowestGpaStudent.getGpa(),
+            lowestGpaStudent.getName()
+        ));
+
+        // Average Age
+        contentStream.newLineAtOffset(0, -15);
+        showLine(statisticsFitter, String.format("Average Age: %.1f years", statistics.getAverageAge()));
+
+        // GPA Ranges header
+        contentStream.newLineAtOffset(0, -20);
+        showLine(statisticsFitter, "Number of students in different GPA ranges:");
+
+        // GPA Ranges data
+        for (Map.Entry<String, Long> entry : gpaRanges.entrySet()) {
+            contentStream.newLineAtOffset(0, -15);
+            showLine(statisticsFitter, String.format("%s: %d students",
+                entry.getKey(), entry.getValue()
+            ));
+        }
+
+        contentStream.endText();
+        yPosition -= 20 + 20 + 15 * 4 + 20 + 15 * gpaRanges.size();
+    }
+
+    /**
+     * Shows a line of text in the fitter's font, cut to the page width
+     */
+    private void showLine(PdfTextFitter fitter, String text) throws IOException {
+        contentStream.setFont(fitter.getFont(), fitter.getFontSize());
+        contentStream.showText(fitter.fit(text, TABLE_RIGHT - TEXT_LEFT));
+    }
+
+    /**
+     * Finishes the last page and writes the document
+     *
+     * @param path The file to write
+     */
+    public void save(String path) throws IOException {
+        finishPage();
+        document.save(path);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finishPage();
+        } finally {
+            document.close();
+        }
+    }
+
+    /**
+     * Starts a new page unless the current one has the height left
+     */
+    private void ensureSpace(float height) throws IOException {
+        endRows();
+        if (contentStream == null || yPosition - height < PAGE_BOTTOM) {
+            newPage();
+        }
+    }
+
+    private void newPage() throws IOException {
+        finishPage();
+        PDPage page = new PDPage();
+        document.addPage(page);
+        pageCount++;
+        contentStream = new PDPageContentStream(document, page);
+        yPosition = PAGE_TOP;
+
+        contentStream.setFont(PDType1Font.TIMES_ROMAN, FONT_SIZE_FOOTER);
+        contentStream.beginText();
+        contentStream.newLineAtOffset(TABLE_COLUMNS[5], 30);
+        contentStream.showText("Page " + pageCount);
+        contentStream.endText();
+    }
+
+    /**
+     * Closes the content of the current page, so it moves out of memory
+     */
+    private void finishPage() throws IOException {
+        if (contentStream != null) {
+            endRows();
+            contentStream.close();
+            contentStream = null;
+        }
+    }
+}
@@ -2,55 +2,73 @@ package services;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import java.util.stream.Stream;
 
 import customexceptions.InvalidEmailException;
 import customexceptions.InvalidAgeException;
 import customexceptions.InvalidGpaException;
+import customexceptions.StorageException;
+import utils.AppConfig;
 import utils.Generators;
 import utils.Validator;
-import models.Student;
-import models.Storage;
+import models.ColumnarStorage;
 import models.FileStorage;
+import models.Page;
+import models.PageCursor;
+import models.Query;
+import models.Student;
+import models.StorageFactory;
+import models.StudentStatistics;
+import models.StudentStatisticsStorage;
 
 public class StudentService {
 
-    static Storage<Student> storage = new FileStorage<>();
     private static final String MODEL_NAME = "Student";
-
-    // Constants for PDF generation
-    private static final float[] TABLE_COLUMNS = {50, 150, 250, 400, 450, 550};
-    private static final int FONT_SIZE_TITLE = 16;
-    private static final int FONT_SIZE_SECTION = 14;
-    private static final int FONT_SIZE_TEXT = 10;
+    // Keeps the statistics up to date on every write, loading them with one pass on first use
+    static final StudentStatisticsStorage storage = new StudentStatisticsStorage(
+            StorageFactory.create(AppConfig.getInstance().getStorageConfig()),
+            MODEL_NAME, StudentService::deserialize, StudentService::collectStatistics);
+    private static final int EMAIL_COLUMN = 2;
+    private static final int AGE_COLUMN = 3;
+    private static final int COURSE_COLUMN = 4;
+    private static final int GPA_COLUMN = 5;
+    private static final List<String> STATISTICS_COLUMNS = List.of("ID", "NAME", "AGE", "COURSE", "GPA");
+
+    private static final int LIST_PAGE_SIZE = 20;
+    // Students read from storage at a time while drawing the PDF report
+    private static final int EXPORT_PAGE_SIZE = 1000;
     private static final String PDF_EXPORT_PATH = "src/main/resources/reports/students_report.pdf";
+    private static final String IMPORT_ERRORS_PATH = "src/main/resources/reports/import_errors.txt";
 
     public static List<Student> deserialize(List<String> lines) {
         List<Student> students = new ArrayList<>();
         for (String line : lines) {
             if (line.startsWith("ID")) continue;
-            String[] fields = line.split(",");
-            Student student = new Student(
-                    fields[0], // id
-                    fields[1], // name
-                    fields[2], // email
-                    Integer.parseInt(fields[3]), // age
-                    fields[4], // course
-                    Double.parseDouble(fields[5]) // gpa
-            );
-            students.add(student);
+            students.add(deserialize(line));
         }
         return students;
     }
 
+    /**
+     * Builds a student from a stored record. Every field is needed as an
+     * object here, and split measured faster for that than the byte-level
+     * parser, which only wins where numbers are read without building students.
+     */
+    public static Student deserialize(String line) {
+        String[] fields = line.split(",");
+        return new Student(
+                fields[0].trim(), // id
+                fields[1].trim(), // name
+                fields[2].trim(), // email
+                Integer.parseInt(fields[3].trim()), // age
+                fields[4].trim(), // course
+                Double.parseDouble(fields[5].trim()) // gpa
+        );
+    }
+
     public static void addStudent(Scanner input) {
         System.out.println("--- Add New Student ---\n");
         
@@ -156,7 +174,7 @@ public class StudentService {
             return;
         }
 
-        Student oldStudent = parseStudentFromLine(line);
+        Student oldStudent = deserialize(line);
         Student updatedStudent = getUpdatedStudentInfo(input, oldStudent);
 
         try {
@@ -168,18 +186,6 @@ public class StudentService {
         }
     }
 
-    private static Student parseStudentFromLine(String line) {
-        String[] student = line.split(",");
-        return new Student(
-            student[0].trim(),                       // id
-            student[1].trim(),                       // name
-            student[2].trim(),                       // email
-            Integer.parseInt(student[3].trim()),     // age
-            student[4].trim(),                       // course
-            Double.parseDouble(student[5].trim())    // gpa
-        );
-    }
-
     private static Student getUpdatedStudentInfo(Scanner input, Student oldStudent) {
         System.out.print("Press Enter to skip the field\n");
 
@@ -211,19 +217,69 @@ public class StudentService {
         return new Student(oldStudent.getId(), newName, newEmail, newAge, newCourse, newGpa);
     }
 
-    public static void getAllStudents() {
+    /**
+     * Lists the students a page at a time. Each page is read from the
+     * position the previous one ended at, and its cursor token can be
+     * entered later to resume the listing there.
+     *
+     * @param input Scanner for user input
+     */
+    public static void getAllStudents(Scanner input) {
         System.out.println("--- Students List ---\n");
-        List<String> students = storage.getAll(MODEL_NAME);
 
-        if (students.isEmpty()) {
+        System.out.print("Page size (Enter for " + LIST_PAGE_SIZE + "): ");
+        int pageSize;
+        try {
+            String size = input.nextLine().trim();
+            pageSize = size.isEmpty() ? LIST_PAGE_SIZE : Integer.parseInt(size);
+        } catch (NumberFormatException e) {
+            pageSize = LIST_PAGE_SIZE;
+        }
+        if (pageSize <= 0) {
+            pageSize = LIST_PAGE_SIZE;
+        }
+
+        Page page = storage.page(MODEL_NAME, null, pageSize);
+        if (page.isEmpty()) {
             System.out.println("There are no Students :(\n");
             return;
         }
 
-        displayStudentHeader();
-        for (String line : students) {
-            if (line.startsWith("ID")) continue; // Skip header line
-            displayStudentDetails(line); 
+        while (true) {
+            displayStudentHeader();
+            page.getRecords().forEach(StudentService::displayStudentDetails);
+            if (!page.isEmpty()) {
+                System.out.println("\nCursor: " + page.getStartCursor().toToken());
+            }
+
+            System.out.print("\n" + (page.hasNext() ? "[N]ext, " : "") + (page.hasPrevious() ? "[P]revious, " : "")
+                    + "[G]o to cursor, [Q]uit: ");
+            String choice = input.nextLine().trim().toUpperCase();
+            switch (choice) {
+                case "N" -> {
+                    if (page.hasNext()) {
+                        page = storage.page(MODEL_NAME, page.getNextCursor(), pageSize);
+                    }
+                }
+                case "P" -> {
+                    if (page.hasPrevious()) {
+                        page = storage.pageBefore(MODEL_NAME, page.getStartCursor(), pageSize);
+                    }
+                }
+                case "G" -> {
+                    System.out.print("Enter cursor: ");
+                    try {
+                        page = storage.page(MODEL_NAME, PageCursor.fromToken(input.nextLine()), pageSize);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println(e.getMessage());
+                    }
+                }
+                case "Q", "" -> {
+                    return;
+                }
+                default -> System.out.println("Invalid option");
+            }
+            System.out.println();
         }
     }
 
@@ -397,32 +453,56 @@ public class StudentService {
 
     public static void showStatistics() {
         System.out.println("--- Statistics ---\n");
-        List<Student> students = getStudentsList();
+        StudentStatistics statistics = storage.getStatistics();
 
-        if (students.isEmpty()) {
+        if (statistics.isEmpty()) {
             System.out.println("No students available for statistics.\n");
             return;
         }
 
-        displayBasicStatistics(students);
-        displayGpaRangeStatistics(students);
-        displayCourseStatistics(students);
+        displayBasicStatistics(statistics);
+        displayGpaRangeStatistics(statistics);
+        displayCourseStatistics(statistics);
     }
 
-    private static List<Student> getStudentsList() {
-        List<String> studentLines = storage.getAll(MODEL_NAME);
-        return StudentService.deserialize(studentLines);
+    /**
+     * Opens a lazy stream of every student. Close it before writing to storage.
+     */
+    private static Stream<Student> streamStudents() {
+        return storage.stream(MODEL_NAME).map(StudentService::deserialize);
     }
 
-    private static void displayBasicStatistics(List<Student> students) {
-        System.out.println("Number of Students: " + students.size());
+    /**
+     * Computes the statistics from scratch in one pass without holding the students in
+     * memory. Columnar storage reads just the ID, name, age, course and GPA
+     * column files (the ID so later removals can find the top students); other
+     * engines stream full records in parallel, each worker aggregating its own
+     * part of the data.
+     */
+    private static StudentStatistics collectStatistics() {
+        if (!(StorageFactory.engineOf(storage) instanceof ColumnarStorage<Student> columnar)) {
+            try (Stream<Student> students = streamStudents()) {
+                return students.parallel().collect(StudentStatistics.collector());
+            }
+        }
+
+        StudentStatistics statistics = new StudentStatistics();
+
+        // Column scans read the engine directly, so write out buffered changes first
+        storage.flush();
+        columnar.scanColumns(MODEL_NAME, STATISTICS_COLUMNS, row -> statistics.accept(new Student(
+                row.getString(0), row.getString(1), "", row.getInt(2), row.getString(3), row.getDouble(4))));
+        return statistics;
+    }
+
+    private static void displayBasicStatistics(StudentStatistics statistics) {
+        System.out.println("Number of Students: " + statistics.getCount());
 
         // Average GPA
-        double averageGpa = calculateAverageGpa(students);
-        System.out.printf("Average GPA: %.2f\n", averageGpa);
+        System.out.printf("Average GPA: %.2f\n", statistics.getAverageGpa());
 
         // Highest GPA
-        Student highestGpaStudent = findHighestGpaStudent(students);
+        Student highestGpaStudent = statistics.getHighestGpaStudent();
         System.out.printf(
             "Highest GPA: %.2f (%s)\n",
             highestGpaStudent.getGpa(),
@@ -430,7 +510,7 @@ public class StudentService {
         );
 
         // Lowest GPA
-        Student lowestGpaStudent = findLowestGpaStudent(students);
+        Student lowestGpaStudent = statistics.getLowestGpaStudent();
         System.out.printf(
             "Lowest GPA: %.2f\n",
             lowestGpaStudent.getGpa(),
@@ -438,276 +518,110 @@ public class StudentService {
         );
 
         // Average Age
-        double averageAge = calculateAverageAge(students);
-        System.out.printf("Average Age: %.1f years\n", averageAge);
-    }
-
-    private static double calculateAverageGpa(List<Student> students) {
-        return students.stream()
-                .mapToDouble(Student::getGpa)
-                .average()
-                .orElse(0.0);
-    }
-
-    private static Student findHighestGpaStudent(List<Student> students) {
-        return students.stream()
-                .max(Comparator.comparingDouble(Student::getGpa))
-                .orElseThrow(() -> new RuntimeException("No students found"));
+        System.out.printf("Average Age: %.1f years\n", statistics.getAverageAge());
     }
 
-    private static Student findLowestGpaStudent(List<Student> students) {
-        return students.stream()
-                .min(Comparator.comparingDouble(Student::getGpa))
-                .orElseThrow(() -> new RuntimeException("No students found"));
-    }
-
-    private static double calculateAverageAge(List<Student> students) {
-        return students.stream()
-                .mapToInt(Student::getAge)
-                .average()
-                .orElse(0.0);
-    }
-
-    private static void displayGpaRangeStatistics(List<Student> students) {
+    private static void displayGpaRangeStatistics(StudentStatistics statistics) {
         System.out.println("\nNumber of students in different GPA ranges:");
-        Map<String, Long> gpaRanges = calculateGpaRanges(students);
-        gpaRanges.forEach((range, count) -> System.out.printf("%s: %d students\n", range, count));
-    }
-
-    private static Map<String, Long> calculateGpaRanges(List<Student> students) {
-        return students.stream()
-                .collect(Collectors.groupingBy(student -> {
-                    double gpa = student.getGpa();
-                    if (gpa >= 3.5) return "Excellent (3.5 and above)";
-                    if (gpa >= 3.0) return "Good (3.0 to 3.5)";
-                    if (gpa >= 2.0) return "Average (2.0 to 3.0)";
-                    return "Poor (2.0 and below)";
-                }, Collectors.counting()));
+        statistics.getGpaRanges().forEach((range, count) -> System.out.printf("%s: %d students\n", range, count));
     }
 
-    private static void displayCourseStatistics(List<Student> students) {
+    private static void displayCourseStatistics(StudentStatistics statistics) {
         System.out.println("\n--- Course-wise Distribution ---\n");
 
         // Students per course
-        Map<String, Long> courseCounts = getStudentsPerCourse(students);
-        courseCounts.forEach((course, count) -> 
+        statistics.getStudentsPerCourse().forEach((course, count) -> 
             System.out.printf("%s: %d students\n", course, count)
         );
 
         // Average GPA by course
         System.out.println("\nAverage GPA by Course:");
-        Map<String, Double> courseGpa = getAverageGpaPerCourse(students);
-        courseGpa.forEach((course, gpa) -> 
+        statistics.getAverageGpaPerCourse().forEach((course, gpa) -> 
             System.out.printf("%s: %.2f\n", course, gpa)
         );
     }
 
-    private static Map<String, Long> getStudentsPerCourse(List<Student> students) {
-        return students.stream()
-                .collect(Collectors.groupingBy(Student::getCourse, Collectors.counting()));
-    }
-
     public static Map<String, Double> getAverageGpaPerCourse(List<Student> students) {
-        return students.stream()
-                .collect(Collectors.groupingBy(Student::getCourse,
-                        Collectors.averagingDouble(Student::getGpa)));
+        StudentStatistics statistics = new StudentStatistics();
+        students.forEach(statistics::accept);
+        return statistics.getAverageGpaPerCourse();
     }
 
     public static void exportToPDF() {
-        List<Student> students = getStudentsList();
+        // Statistics are maintained by the storage, so only the student table reads the data
+        StudentStatistics statistics = storage.getStatistics();
 
-        if (students.isEmpty()) {
+        if (statistics.isEmpty()) {
             System.out.println("No students available to export.");
             return;
         }
 
-        try (PDDocument document = new PDDocument()) {
-            PDPage page = new PDPage();
-            document.addPage(page);
-
-            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                // Start with initial Y position at the top of the page
-                float yPosition = 750;
-                
-                // Draw PDF content with dynamically updated Y position
-                yPosition = addPdfTitle(contentStream, yPosition);
-                yPosition = addPdfStudentTable(contentStream, students, yPosition);
-                addPdfStatistics(contentStream, students, yPosition);
+        long start = System.nanoTime();
+        try (StudentReportWriter report = new StudentReportWriter()) {
+            report.addTitle("Students Report");
+            // Students are read a page at a time, with no lock held between pages
+            report.startStudentTable("Students List");
+            Page page = storage.page(MODEL_NAME, null, EXPORT_PAGE_SIZE);
+            while (true) {
+                for (String line : page.getRecords()) {
+                    report.addStudentRow(deserialize(line));
+                }
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = storage.page(MODEL_NAME, page.getNextCursor(), EXPORT_PAGE_SIZE);
             }
+            report.endStudentTable();
+            report.addStatistics(statistics);
 
             // Save PDF
-            savePdfDocument(document);
+            savePdfDocument(report);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Exported %d students on %d pages in %.2f s (%.0f pages/s, %.0f rows/s)%n",
+                    report.getRowCount(), report.getPageCount(), seconds, report.getPageCount() / seconds,
+                    report.getRowCount() / seconds);
         } catch (IOException e) {
             System.out.println("Error generating PDF: " + e.getMessage());
         }
     }
 
-    private static float addPdfTitle(PDPageContentStream contentStream, float yPosition) throws IOException {
-        contentStream.setFont(PDType1Font.TIMES_BOLD, FONT_SIZE_TITLE);
-        contentStream.beginText();
-        contentStream.newLineAtOffset(50, yPosition);
-        contentStream.showText("Students Report");
-        contentStream.endText();
-        
-        // Return the new Y position after adding title and some spacing
-        return yPosition - 30;
-    }
-
-    private static float addPdfStudentTable(PDPageContentStream contentStream, List<Student> students, float yPosition) throws IOException {
-        // Student section title
-        contentStream.setFont(PDType1Font.TIMES_BOLD, FONT_SIZE_SECTION);
-        contentStream.beginText();
-        contentStream.newLineAtOffset(50, yPosition);
-        contentStream.showText("Students List");
-        contentStream.endText();
-
-        // Space after section title
-        yPosition -= 20;
-
-        // Draw table header
-        drawPdfTableHeader(contentStream, yPosition);
-        yPosition -= 20;
-
-        // Draw student rows and get updated Y position
-        return drawPdfTableRows(contentStream, students, yPosition);
-    }
-
-    private static void drawPdfTableHeader(PDPageContentStream contentStream, float yPosition) throws IOException {
-        contentStream.setFont(PDType1Font.TIMES_BOLD, FONT_SIZE_TEXT);
-        contentStream.beginText();
-        contentStream.newLineAtOffset(TABLE_COLUMNS[0], yPosition);
-        contentStream.showText("ID");
-        contentStream.newLineAtOffset(TABLE_COLUMNS[1] - TABLE_COLUMNS[0], 0);
-        contentStream.showText("NAME");
-        contentStream.newLineAtOffset(TABLE_COLUMNS[2] - TABLE_COLUMNS[1], 0);
-        contentStream.showText("EMAIL");
-        contentStream.newLineAtOffset(TABLE_COLUMNS[3] - TABLE_COLUMNS[2], 0);
-        contentStream.showText("AGE");
-        contentStream.newLineAtOffset(TABLE_COLUMNS[4] - TABLE_COLUMNS[3], 0);
-        contentStream.showText("COURSE");
-        contentStream.newLineAtOffset(TABLE_COLUMNS[5] - TABLE_COLUMNS[4], 0);
-        contentStream.showText("GPA");
-        contentStream.endText();
-
-        // Header line
-        contentStream.setLineWidth(0.5f);
-        contentStream.moveTo(TABLE_COLUMNS[0], yPosition - 5);
-        contentStream.lineTo(TABLE_COLUMNS[5] + 50, yPosition - 5);
-        contentStream.stroke();
-    }
-
-    private static float drawPdfTableRows(PDPageContentStream contentStream, List<Student> students, float yPosition) throws IOException {
-        contentStream.setFont(PDType1Font.TIMES_ROMAN, FONT_SIZE_TEXT);
-        float rowHeight = 20;
-        int maxRowsPerPage = 25; // Prevents overflow to bottom of page
-        int rowCount = 0;
-
-        for (Student student : students) {
-            contentStream.beginText();
-            contentStream.newLineAtOffset(TABLE_COLUMNS[0], yPosition);
-            contentStream.showText(student.getId());
-            contentStream.newLineAtOffset(TABLE_COLUMNS[1] - TABLE_COLUMNS[0], 0);
-            contentStream.showText(student.getName());
-            contentStream.newLineAtOffset(TABLE_COLUMNS[2] - TABLE_COLUMNS[1], 0);
-            contentStream.showText(student.getEmail());
-            contentStream.newLineAtOffset(TABLE_COLUMNS[3] - TABLE_COLUMNS[2], 0);
-            contentStream.showText(String.valueOf(student.getAge()));
-            contentStream.newLineAtOffset(TABLE_COLUMNS[4] - TABLE_COLUMNS[3], 0);
-            contentStream.showText(student.getCourse());
-            contentStream.newLineAtOffset(TABLE_COLUMNS[5] - TABLE_COLUMNS[4], 0);
-            contentStream.showText(String.format("%.2f", student.getGpa()));
-            contentStream.endText();
-            
-            yPosition -= rowHeight;
-            rowCount++;
-            
-            // Check if we need a new page
-            if (rowCount >= maxRowsPerPage || yPosition < 100) {
-                // In a more advanced implementation, we would add a new page here
-                // and continue rendering the remaining students
-                break;
-            }
-        }
-        
-        // Add extra spacing after the table
-        return yPosition - 20;
-    }
-
-    private static void addPdfStatistics(PDPageContentStream contentStream, List<Student> students, float yPosition) throws IOException {
-        // Check if we need to start statistics on a new page
-        if (yPosition < 200) {
-            // In a more advanced implementation, we would add a new page here
-            // For now, we'll just abort adding statistics if there's not enough space
-            System.out.println("Not enough space for statistics. Consider implementing pagination.");
+    /**
+     * Writes a PDF report per course on all cores and merges them into one report
+     */
+    public static void exportCourseReports() {
+        System.out.println("--- Export Per-Course PDF Reports ---\n");
+        if (storage.getStatistics().isEmpty()) {
+            System.out.println("No students available to export.");
             return;
         }
 
-        // Statistics title
-        contentStream.setFont(PDType1Font.TIMES_BOLD, FONT_SIZE_SECTION);
-        contentStream.beginText();
-        contentStream.newLineAtOffset(50, yPosition);
-        contentStream.showText("Statistics");
-        yPosition -= 20;
-
-        // Basic statistics
-        contentStream.setFont(PDType1Font.TIMES_BOLD, FONT_SIZE_TEXT);
-        
-        // Student count
-        contentStream.newLineAtOffset(0, -20);
-        contentStream.showText("Number of Students: " + students.size());
-        
-        // Average GPA
-        double averageGpa = calculateAverageGpa(students);
-        contentStream.newLineAtOffset(0, -15);
-        contentStream.showText(String.format("Average GPA: %.2f", averageGpa));
-        
-        // Highest GPA
-        Student highestGpaStudent = findHighestGpaStudent(students);
-        contentStream.newLineAtOffset(0, -15);
-        contentStream.showText(String.format(
-            "Highest GPA: %.2f (%s)",
-            highestGpaStudent.getGpa(),
-            highestGpaStudent.getName()
-        ));
-
-        // Lowest GPA
-        Student lowestGpaStudent = findLowestGpaStudent(students);
-        contentStream.newLineAtOffset(0, -15);
-        contentStream.showText(String.format(
-            "Lowest GPA: %.2f (%s)",
-            lowestGpaStudent.getGpa(),
-            lowestGpaStudent.getName()
-        ));
-
-        // Average Age
-        double averageAge = calculateAverageAge(students);
-        contentStream.newLineAtOffset(0, -15);
-        contentStream.showText(String.format("Average Age: %.1f years", averageAge));
-        
-        // GPA Ranges header
-        contentStream.newLineAtOffset(0, -20);
-        contentStream.showText("Number of students in different GPA ranges:");
-
-        // GPA Ranges data
-        Map<String, Long> gpaRanges = calculateGpaRanges(students);
-        for (Map.Entry<String, Long> entry : gpaRanges.entrySet()) {
-            contentStream.newLineAtOffset(0, -15);
-            contentStream.showText(String.format("%s: %d students",
-                entry.getKey(), entry.getValue()
-            ));
+        CourseReportExporter exporter = new CourseReportExporter(storage, MODEL_NAME,
+                Paths.get(AppConfig.getInstance().getReportsDirectory()));
+        try {
+            CourseReportExporter.Result result = exporter.export();
+            System.out.printf("Exported %d courses (%d students, %d pages) in %.2f s (%.0f pages/s) using %d workers%n",
+                    result.getCourseFiles().size(), result.getStudents(), result.getPages(),
+                    result.getElapsedSeconds(), result.getPagesPerSecond(), exporter.getWorkers());
+            if (!result.getCourseFiles().isEmpty()) {
+                System.out.println("Course reports saved to: " + result.getCourseFiles().get(0).getParent());
+                if (result.getMergedFile() != null) {
+                    System.out.println("Merged report saved to: " + result.getMergedFile());
+                } else {
+                    System.out.println("Too many pages to merge into one report; use the course reports.");
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error generating PDF: " + e.getMessage());
         }
-        
-        contentStream.endText();
     }
-    
 
-    private static void savePdfDocument(PDDocument document) throws IOException {
+    private static void savePdfDocument(StudentReportWriter report) throws IOException {
         File directory = new File("src/main/resources/reports");
         if (!directory.exists() && directory.mkdirs()) {
             System.out.println("Created reports directory.");
         }
 
-        document.save(PDF_EXPORT_PATH);
+        report.save(PDF_EXPORT_PATH);
         System.out.println("PDF exported successfully to: " + PDF_EXPORT_PATH);
     }
 
@@ -727,112 +641,40 @@ public class StudentService {
         }
         
         try {
-            List<String> lines = Files.readAllLines(Paths.get(filePath), StandardCharsets.UTF_8);
-            
-            // Skip header if exists
-            if (lines.isEmpty()) {
+            StudentImporter.Result result = new StudentImporter(storage, MODEL_NAME)
+                    .importFile(Paths.get(filePath), Paths.get(IMPORT_ERRORS_PATH));
+            if (result.getRowsRead() == 0) {
                 System.out.println("File is empty");
                 return;
             }
-            
-            boolean hasHeader = lines.get(0).startsWith("ID") || 
-                                lines.get(0).toLowerCase().contains("name") ||
-                                lines.get(0).toLowerCase().contains("email");
-            int startIndex = hasHeader ? 1 : 0;
-            
-            List<Student> students = new ArrayList<>();
-            List<String> errorLines = new ArrayList<>();
-            Set<String> importedEmails = new HashSet<>(); // Track emails in current import
-    
-            for (int i = startIndex; i < lines.size(); i++) {
-                String line = lines.get(i);
-                try {
-                    String[] fields = line.split(",");
-                    if (fields.length < 5) {
-                        errorLines.add("Line " + (i+1) + ": Insufficient columns");
-                        continue;
-                    }
-                    
-                    // Generate new ID for each student
-                    String id = "ST" + Generators.generateId();
-                    String name = fields[0].trim();
-                    String email = fields[1].trim();
-                    int age;
-                    String course = fields[3].trim();
-                    double gpa;
-                    
-                    try {
-                        age = Integer.parseInt(fields[2].trim());
-                        Validator.isValidAge(age);
-                    } catch (Exception e) {
-                        errorLines.add("Line " + (i+1) + ": Invalid age - " + fields[2]);
-                        continue;
-                    }
-                    
-                    try {
-                        gpa = Double.parseDouble(fields[4].trim());
-                        Validator.isValidGpa(gpa);
-                    } catch (Exception e) {
-                        errorLines.add("Line " + (i+1) + ": Invalid GPA - " + fields[4]);
-                        continue;
-                    }
-                    
-                    try {
-                        Validator.isValidEmail(email);
-                    } catch (InvalidEmailException e) {
-                        errorLines.add("Line " + (i+1) + ": Invalid email - " + email);
-                        continue;
-                    }
-                    
-                    // Check if email is already in current import batch
-                    if (importedEmails.contains(email.toLowerCase())) {
-                        errorLines.add("Line " + (i+1) + ": Duplicate email in import file - " + email);
-                        continue;
-                    }
-                    
-                    // Check if email exists in database
-                    try {
-                        validateEmailUniqueness(email);
-                    } catch (IllegalArgumentException e) {
-                        errorLines.add("Line " + (i+1) + ": " + e.getMessage());
-                        continue;
-                    }
-                    
-                    // Track this email for duplicates in the current import
-                    importedEmails.add(email.toLowerCase());
-                    
-                    Student student = new Student(id, name, email, age, course, gpa);
-                    students.add(student);
-                    
-                } catch (Exception e) {
-                    errorLines.add("Line " + (i+1) + ": " + e.getMessage());
-                }
-            }
-            
-            if (students.isEmpty()) {
+            if (result.getImported() == 0) {
                 System.out.println("No valid students found for import");
-                return;
             }
-            
-            // Use batch add for better performance
-            int addedCount = addStudentsBatch(students);
-            
+
+            List<String> errorLines = result.getErrors();
             System.out.println("\n***** Import Summary *****");
-            System.out.println("Students successfully imported: " + addedCount);
+            System.out.println("Students successfully imported: " + result.getImported());
+            System.out.printf("Processed %d rows in %.2f s (%.0f rows/s)%n",
+                    result.getRowsRead(), result.getElapsedSeconds(), result.getRowsPerSecond());
             
-            if (!errorLines.isEmpty()) {
-                System.out.println("Errors encountered: " + errorLines.size());
+            if (result.getErrorCount() > 0) {
+                System.out.println("Errors encountered: " + result.getErrorCount());
                 System.out.println("First 5 errors:");
                 for (int i = 0; i < Math.min(5, errorLines.size()); i++) {
                     System.out.println("  - " + errorLines.get(i));
                 }
                 
-                if (errorLines.size() > 5) {
-                    System.out.println("  ... and " + (errorLines.size() - 5) + " more errors");
+                if (result.getErrorCount() > 5) {
+                    System.out.println("  ... and " + (result.getErrorCount() - 5) + " more errors");
+                }
+                if (result.getErrorFile() != null) {
+                    System.out.println("All errors written to " + result.getErrorFile());
                 }
             }
         } catch (IOException e) {
             System.out.println("Error reading file: " + e.getMessage());
+        } catch (StorageException e) {
+            System.out.println("Error during import: " + e.getMessage());
         }
     }
 
@@ -905,17 +747,13 @@ public class StudentService {
     public static void batchUpdateGpas(Scanner input) {
         System.out.println("--- Batch GPA Update ---\n");
         
-        List<Student> allStudents = getStudentsList();
-        if (allStudents.isEmpty()) {
+        // Answered from the storage's course index without reading any students
+        Set<String> courses = new TreeSet<>(storage.distinctValues(MODEL_NAME, COURSE_COLUMN));
+        if (courses.isEmpty()) {
             System.out.println("No students available to update");
             return;
         }
         
-        // Display available courses
-        Set<String> courses = allStudents.stream()
-                .map(Student::getCourse)
-                .collect(Collectors.toSet());
-        
         System.out.println("Available courses:");
         courses.forEach(course -> System.out.println("- " + course));
         
@@ -942,27 +780,26 @@ public class StudentService {
             return;
         }
         
-        // Filter students by course and update GPAs
+        // Read only the students of the course and update their GPAs
         Map<String, Student> updatedStudents = new HashMap<>();
         
-        for (Student student : allStudents) {
-            if (student.getCourse().equals(courseName)) {
-                double newGpa = student.getGpa() * factor;
-                // Cap at max GPA value
-                newGpa = Math.min(newGpa, 4.0);
-                
-                Student updatedStudent = new Student(
-                    student.getId(),
-                    student.getName(),
-                    student.getEmail(),
-                    student.getAge(),
-                    student.getCourse(),
-                    newGpa
-                );
-                
-                updatedStudents.put(student.getId(), updatedStudent);
-            }
-        }
+        storage.scanWhere(MODEL_NAME, COURSE_COLUMN, courseName, line -> {
+            Student student = deserialize(line);
+            double newGpa = student.getGpa() * factor;
+            // Cap at max GPA value
+            newGpa = Math.min(newGpa, 4.0);
+            
+            Student updatedStudent = new Student(
+                student.getId(),
+                student.getName(),
+                student.getEmail(),
+                student.getAge(),
+                student.getCourse(),
+                newGpa
+            );
+            
+            updatedStudents.put(student.getId(), updatedStudent);
+        });
         
         if (updatedStudents.isEmpty()) {
             System.out.println("No students found in course: " + courseName);
@@ -982,6 +819,158 @@ public class StudentService {
         }
     }
     
+    /**
+     * Lists the students matching optional course, age, GPA and email domain
+     * filters. The filters are evaluated by the storage engine, which reads
+     * only the matching students where it has an index.
+     *
+     * @param input Scanner for user input
+     */
+    public static void filterStudents(Scanner input) {
+        System.out.println("--- Filter Students ---\n");
+        System.out.println("Press Enter to skip a filter\n");
+        Query query = new Query(MODEL_NAME);
+
+        try {
+            System.out.print("Course: ");
+            String course = input.nextLine().trim();
+            if (!course.isEmpty()) {
+                query.whereEquals(COURSE_COLUMN, course);
+            }
+
+            System.out.print("Minimum age: ");
+            String minAge = input.nextLine().trim();
+            System.out.print("Maximum age: ");
+            String maxAge = input.nextLine().trim();
+            if (!minAge.isEmpty() || !maxAge.isEmpty()) {
+                query.whereBetween(AGE_COLUMN,
+                        minAge.isEmpty() ? Double.NEGATIVE_INFINITY : Integer.parseInt(minAge),
+                        maxAge.isEmpty() ? Double.POSITIVE_INFINITY : Integer.parseInt(maxAge));
+            }
+
+            System.out.print("Minimum GPA: ");
+            String minGpa = input.nextLine().trim();
+            System.out.print("Maximum GPA: ");
+            String maxGpa = input.nextLine().trim();
+            if (!minGpa.isEmpty() || !maxGpa.isEmpty()) {
+                query.whereBetween(GPA_COLUMN,
+                        minGpa.isEmpty() ? Double.NEGATIVE_INFINITY : Double.parseDouble(minGpa),
+                        maxGpa.isEmpty() ? Double.POSITIVE_INFINITY : Double.parseDouble(maxGpa));
+            }
+
+            System.out.print("Email domain (e.g., example.com): ");
+            String domain = input.nextLine().trim();
+            if (!domain.isEmpty()) {
+                query.whereEndsWithIgnoreCase(EMAIL_COLUMN, domain.startsWith("@") ? domain : "@" + domain);
+            }
+
+            System.out.print("Maximum number of results: ");
+            String limit = input.nextLine().trim();
+            if (!limit.isEmpty()) {
+                query.limit(Integer.parseInt(limit));
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid number format");
+            return;
+        }
+
+        // Collected first: the storage may hold its read lock while producing results
+        List<String> matches = new ArrayList<>();
+        storage.query(query, matches::add);
+
+        System.out.println();
+        if (matches.isEmpty()) {
+            System.out.println("No students match the filters");
+            return;
+        }
+        displayStudentHeader();
+        matches.forEach(StudentService::displayStudentDetails);
+        System.out.println("\n" + matches.size() + " students found");
+    }
+
+    /**
+     * Answers GPA range, top-N and percentile questions from the storage's
+     * sorted GPA index, reading only the students shown
+     *
+     * @param input Scanner for user input
+     */
+    public static void showGpaRankings(Scanner input) {
+        System.out.println("--- GPA Rankings ---\n");
+        System.out.println("1. Students in a GPA range");
+        System.out.println("2. Top students by GPA");
+        System.out.println("3. GPA percentile of a student");
+        System.out.print("\nSelect an option: ");
+        String choice = input.nextLine().trim();
+
+        try {
+            switch (choice) {
+                case "1" -> {
+                    System.out.print("Enter minimum GPA: ");
+                    double min = Double.parseDouble(input.nextLine().trim());
+                    System.out.print("Enter maximum GPA: ");
+                    double max = Double.parseDouble(input.nextLine().trim());
+
+                    boolean[] empty = {true};
+                    storage.scanRange(MODEL_NAME, GPA_COLUMN, min, max, line -> {
+                        if (empty[0]) {
+                            displayStudentHeader();
+                            empty[0] = false;
+                        }
+                        displayStudentDetails(line);
+                    });
+                    if (empty[0]) {
+                        System.out.println("No students with GPA between " + min + " and " + max);
+                    }
+                }
+                case "2" -> {
+                    System.out.print("How many students: ");
+                    int n = Integer.parseInt(input.nextLine().trim());
+
+                    List<String> top = storage.top(MODEL_NAME, GPA_COLUMN, n);
+                    if (top.isEmpty()) {
+                        System.out.println("No students available");
+                        return;
+                    }
+                    displayStudentHeader();
+                    top.forEach(StudentService::displayStudentDetails);
+                }
+                case "3" -> {
+                    String id = promptForId(input);
+                    String line = storage.get(MODEL_NAME, id);
+                    if (line.isEmpty()) {
+                        System.out.println("Student does not exist :(\n");
+                        return;
+                    }
+
+                    Student student = deserialize(line);
+                    long below = storage.countBelow(MODEL_NAME, GPA_COLUMN, student.getGpa());
+                    long total = storage.countBelow(MODEL_NAME, GPA_COLUMN, Double.POSITIVE_INFINITY);
+                    System.out.printf("%s has a GPA of %.2f, higher than %d of %d students (percentile %.1f)%n",
+                            student.getName(), student.getGpa(), below, total, 100.0 * below / total);
+                }
+                default -> System.out.println("Invalid option");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number format");
+        }
+    }
+
+    /**
+     * Writes out any buffered changes and saves the CSV engine's sorted
+     * indexes, called before the application exits
+     */
+    public static void saveChanges() {
+        try {
+            storage.flush();
+            if (StorageFactory.engineOf(storage) instanceof FileStorage<Student> files) {
+                files.saveIndexes();
+            }
+            System.out.println("All changes saved.");
+        } catch (Exception e) {
+            System.err.println("Error saving changes: " + e.getMessage());
+        }
+    }
+
     /**
      * Validates that the email is unique (not already used by another student)
      * 
@@ -991,8 +980,7 @@ public class StudentService {
      */
     private static void validateEmailUniqueness(String email, String... studentId) {
         // Email is in column index 2 (0-based)
-        boolean emailExists = ((FileStorage<Student>)storage).valueExistsInColumn(
-                MODEL_NAME, email, 2, studentId);
+        boolean emailExists = storage.valueExistsInColumn(MODEL_NAME, email, EMAIL_COLUMN, studentId);
         
         if (emailExists) {
             throw new IllegalArgumentException("Email '" + email + "' is already registered. Please use a different email address.");
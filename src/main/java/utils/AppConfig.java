@@ -1,5 +1,7 @@
 package utils;
 
+import models.ReadMode;
+import models.Student;
 import models.StorageConfig;
 
 /**
@@ -28,6 +30,10 @@ public class AppConfig {
     // Make constructor private
     private AppConfig() {
         this.storageConfig = new StorageConfig(DEFAULT_DATA_DIR, ".csv");
+        this.storageConfig.setColumnTypes("Student", Student.COLUMN_TYPES);
+        this.storageConfig.setReadMode(ReadMode.MEMORY_MAPPED);
+        this.storageConfig.setWriteBehind(true);
+        this.storageConfig.setCacheMaxEntries(10_000);
         this.reportsDirectory = DEFAULT_REPORTS_DIR;
     }
     
@@ -0,0 +1,81 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+/**
+ * Minimal timing harness for the benchmark mains. Each case is run a number
+ * of warm-up times, so the JIT has compiled it, and then timed over several
+ * measured runs; the median run is reported as operations per second.
+ *
+ * A case returns a checksum computed from everything it read, which is
+ * printed so the work cannot be optimized away and cases doing the same work
+ * can be checked against each other.
+ */
+public class Benchmark {
+    public static final int DEFAULT_WARMUPS = 5;
+    public static final int DEFAULT_ITERATIONS = 10;
+
+    private Benchmark() {
+    }
+
+    /**
+     * Times one case and prints a line with its median and best run
+     *
+     * @param name Label of the case
+     * @param operations Operations done by one run, for the rate
+     * @param body One run of the case, returning a checksum of its work
+     * @return The median run time in nanoseconds
+     */
+    public static long run(String name, long operations, Callable<Long> body) throws Exception {
+        return run(name, DEFAULT_WARMUPS, DEFAULT_ITERATIONS, operations, body);
+    }
+
+    /**
+     * Times one case and prints a line with its median and best run
+     *
+     * @param name Label of the case
+     * @param warmups Runs discarded before measuring
+     * @param iterations Measured runs
+     * @param operations Operations done by one run, for the rate
+     * @param body One run of the case, returning a checksum of its work
+     * @return The median run time in nanoseconds
+     */
+    public static long run(String name, int warmups, int iterations, long operations, Callable<Long> body) throws Exception {
+        long checksum = 0;
+        for (int i = 0; i < warmups; i++) {
+            checksum = body.call();
+        }
+
+        long[] times = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            checksum = body.call();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+
+        long median = times[iterations / 2];
+        System.out.printf("%-32s %10.1f ms %14.0f ops/s   best %8.1f ms   checksum %d%n",
+                name, median / 1e6, operations * 1e9 / median, times[0] / 1e6, checksum);
+        return median;
+    }
+
+    /**
+     * Reads an optional positive integer argument
+     *
+     * @param args The program arguments
+     * @param index Position of the argument
+     * @param defaultValue Used when the argument is missing
+     */
+    public static int intArg(String[] args, int index, int defaultValue) {
+        if (args.length <= index) {
+            return defaultValue;
+        }
+        int value = Integer.parseInt(args[index]);
+        if (value <= 0) {
+            throw new IllegalArgumentException("Argument " + (index + 1) + " must be positive: " + value);
+        }
+        return value;
+    }
+}
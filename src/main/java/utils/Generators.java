@@ -1,7 +1,52 @@
 package utils;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 public class Generators {
+    private static volatile SnowflakeIdGenerator idGenerator;
+
+    /**
+     * Generates a unique ID, also across processes sharing the data directory
+     *
+     * @throws IllegalStateException If no node ID can be leased in the data directory
+     */
     public static String generateId() {
-        return String.valueOf(System.currentTimeMillis());
+        return String.valueOf(getIdGenerator().nextId());
+    }
+
+    /**
+     * Reserves a block of unique IDs at once, for bulk inserts
+     *
+     * @param count The number of IDs
+     * @return The block of IDs, for use by one thread
+     * @throws IllegalStateException If no node ID can be leased in the data directory
+     */
+    public static SnowflakeIdGenerator.Block reserveIds(int count) {
+        return getIdGenerator().reserve(count);
+    }
+
+    private static SnowflakeIdGenerator getIdGenerator() {
+        SnowflakeIdGenerator generator = idGenerator;
+        if (generator == null) {
+            synchronized (Generators.class) {
+                generator = idGenerator;
+                if (generator == null) {
+                    generator = createIdGenerator();
+                    idGenerator = generator;
+                }
+            }
+        }
+        return generator;
+    }
+
+    private static SnowflakeIdGenerator createIdGenerator() {
+        String dataDirectory = AppConfig.getInstance().getStorageConfig().getDataDirectory();
+        try {
+            return SnowflakeIdGenerator.leaseNode(Paths.get(dataDirectory));
+        } catch (IOException e) {
+            // A node that is not leased may be in use by another process, whose IDs would collide with ours
+            throw new IllegalStateException("Could not lease an ID node in " + dataDirectory, e);
+        }
     }
 }
@@ -0,0 +1,241 @@
+package utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, increasing 64-bit IDs without locking, in the style of
+ * Snowflake. From the high bits down, each ID holds:
+ *
+ * - 41 bits: milliseconds since 2024-01-01 UTC (good until about 2093)
+ * - 10 bits: node ID, different for every process sharing a data directory
+ * - 12 bits: sequence number within the millisecond
+ *
+ * The last (timestamp, sequence) handed out is kept in a single AtomicLong
+ * and moved forward with compare-and-set. When the 4,096 sequence numbers of
+ * a millisecond run out, the sequence carries into the next millisecond
+ * instead of waiting for the clock, and a clock that steps back is ignored.
+ * IDs therefore always increase and a burst never blocks; the generator just
+ * runs a little ahead of the clock until the clock catches up.
+ *
+ * A leased generator also keeps a high-water mark in its lease file, a
+ * second of stamps ahead of the last one handed out, and moves it on before
+ * handing out anything past it. The next owner of the node starts after the
+ * mark, so it cannot reissue IDs even if the clock has stepped back or the
+ * previous owner ran ahead of the clock.
+ */
+public class SnowflakeIdGenerator {
+    /**
+     * Start of the timestamps, 2024-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1_704_067_200_000L;
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // How far the saved high-water mark runs ahead, so it is written about once a second
+    private static final long HIGH_WATER_AHEAD = 1000L << SEQUENCE_BITS;
+    private static final String NODES_DIRECTORY = ".nodes";
+    // Lease files locked by this process. They must not be opened again, since
+    // closing any channel on a file drops the process's lock on it on some systems
+    private static final Set<Path> LEASED = new HashSet<>();
+
+    private final long nodeId;
+    // Last (timestamp << SEQUENCE_BITS | sequence) handed out
+    private final AtomicLong last = new AtomicLong();
+    // Holds the lock on the node's lease file for as long as the generator lives
+    private FileChannel lease;
+    // Highest stamp saved in the lease file, unlimited without a lease. Raised holding this
+    private volatile long highWater = Long.MAX_VALUE;
+
+    /**
+     * A run of consecutive IDs reserved at once, handed out by one thread
+     * without touching the shared counter
+     */
+    public class Block {
+        private long next;
+        private final long end;
+
+        private Block(long first, int count) {
+            this.next = first;
+            this.end = first + count;
+        }
+
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        public int remaining() {
+            return (int) (end - next);
+        }
+
+        /**
+         * @return The next ID of the block
+         * @throws NoSuchElementException If the block is used up
+         */
+        public long nextId() {
+            if (next >= end) {
+                throw new NoSuchElementException("ID block is used up");
+            }
+            return compose(next++);
+        }
+    }
+
+    /**
+     * @param nodeId The node ID, from 0 to {@link #MAX_NODE_ID}; no other
+     *               process may generate IDs with the same node ID at the same time
+     */
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Creates a generator with a node ID leased from a data directory. The
+     * lease is an OS file lock on one of the files in the directory's
+     * ".nodes" folder, held while the process runs and released by the OS
+     * even if it crashes, so every process (and every generator within a
+     * process) using the directory gets its own node ID. The generator starts
+     * after the high-water mark the node's previous owner saved in the file.
+     *
+     * @param dataDirectory The shared data directory
+     * @return The generator
+     * @throws IOException If the lease files cannot be created or every node ID is in use
+     */
+    public static synchronized SnowflakeIdGenerator leaseNode(Path dataDirectory) throws IOException {
+        Path nodes = dataDirectory.toAbsolutePath().normalize().resolve(NODES_DIRECTORY);
+        Files.createDirectories(nodes);
+
+        for (int node = 0; node <= MAX_NODE_ID; node++) {
+            Path file = nodes.resolve("node-" + node + ".lock");
+            if (LEASED.contains(file)) {
+                continue;
+            }
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                FileLock lock = channel.tryLock();
+                if (lock != null) {
+                    LEASED.add(file);
+                    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(node);
+                    generator.lease = channel;
+                    long saved = readHighWater(channel);
+                    generator.last.set(saved);
+                    generator.highWater = saved;
+                    return generator;
+                }
+            } catch (OverlappingFileLockException e) {
+                // Locked through another channel of this process
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+        }
+        throw new IOException("All " + (MAX_NODE_ID + 1) + " node IDs of " + dataDirectory + " are in use");
+    }
+
+    /**
+     * Reads the high-water mark saved in a lease file
+     *
+     * @return The mark, or 0 if none has been saved yet
+     */
+    private static long readHighWater(FileChannel channel) throws IOException {
+        if (channel.size() < Long.BYTES) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("Unexpected end of lease file");
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+
+    /**
+     * @return A new ID, greater than every ID this generator handed out before
+     */
+    public long nextId() {
+        return compose(advance(1));
+    }
+
+    /**
+     * Reserves consecutive IDs with a single update of the shared counter,
+     * for callers that need many IDs at once
+     *
+     * @param count The number of IDs, at most 4,096 keeps the block within about a millisecond
+     * @return The block of IDs, for use by one thread
+     */
+    public Block reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        return new Block(advance(count), count);
+    }
+
+    /**
+     * Claims the next count (timestamp, sequence) pairs, saving a new
+     * high-water mark first if they go past the saved one
+     *
+     * @return The first pair claimed
+     */
+    private long advance(int count) {
+        while (true) {
+            long previous = last.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            long first = Math.max(previous + 1, now);
+            long end = first + count - 1;
+            if (last.compareAndSet(previous, end)) {
+                if (end > highWater) {
+                    saveHighWater(end);
+                }
+                return first;
+            }
+        }
+    }
+
+    /**
+     * Saves a high-water mark ahead of a stamp in the lease file and forces it to disk
+     *
+     * @throws UncheckedIOException If the lease file cannot be written; the stamp must then not be used
+     */
+    private synchronized void saveHighWater(long stamp) {
+        if (stamp <= highWater) {
+            return;
+        }
+        long mark = stamp + HIGH_WATER_AHEAD;
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).putLong(0, mark);
+        try {
+            while (buffer.hasRemaining()) {
+                lease.write(buffer, buffer.position());
+            }
+            lease.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not save the ID high-water mark of node " + nodeId, e);
+        }
+        highWater = mark;
+    }
+
+    private long compose(long stamp) {
+        long timestamp = stamp >>> SEQUENCE_BITS;
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | nodeId << SEQUENCE_BITS | (stamp & SEQUENCE_MASK);
+    }
+}
@@ -0,0 +1,16 @@
+package utils;
+
+/**
+ * Outcome of a non-throwing check in {@link Validator}. The constants are
+ * shared, so checking a value allocates nothing whether it passes or not.
+ */
+public enum ValidationResult {
+    VALID,
+    EMPTY,
+    INVALID_FORMAT,
+    OUT_OF_RANGE;
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+}
@@ -4,13 +4,8 @@ import customexceptions.InvalidAgeException;
 import customexceptions.InvalidEmailException;
 import customexceptions.InvalidGpaException;
 
-import java.util.regex.Pattern;
-
 public class Validator {
 
-    private static final String EMAIL_REGEX = "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$";
-    private static final Pattern EMAIL_PATTERN = Pattern.compile(EMAIL_REGEX);
-
     private static final int MIN_AGE = 16;
     private static final int MAX_AGE = 99;
 
@@ -18,28 +13,106 @@ public class Validator {
     private static final double MAX_GPA = 4.0;
 
     /**
-     * Validate email format using regex pattern
+     * Validate email format
      * @param email Email address to validate
      * @throws InvalidEmailException If email format is invalid
      */
     public static void isValidEmail(String email) throws InvalidEmailException {
+        ValidationResult result = checkEmail(email);
 
-        if (email == null || email.trim().isEmpty())
+        if (result == ValidationResult.EMPTY)
             throw new InvalidEmailException("Email cannot be empty");
         
-        if (!EMAIL_PATTERN.matcher(email).matches()) {
+        if (!result.isValid()) {
             throw new InvalidEmailException("Invalid email format: " + email +
                     ". Please use a valid email format (e.g., user@example.com)");
         }
     }
 
+    /**
+     * Checks an email without throwing, for bulk paths such as imports
+     * @param email Email address to check
+     * @return VALID, EMPTY or INVALID_FORMAT
+     */
+    public static ValidationResult checkEmail(String email) {
+        if (email == null || email.trim().isEmpty()) {
+            return ValidationResult.EMPTY;
+        }
+        return isEmailFormat(email) ? ValidationResult.VALID : ValidationResult.INVALID_FORMAT;
+    }
+
+    /**
+     * Checks an email in a single pass, accepting exactly what the regex
+     * {@code ^[a-zA-Z0-9_+&*-]+(?:\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\.)+[a-zA-Z]{2,7}$}
+     * accepts: dot-separated local segments, an '@', one or more domain
+     * labels each followed by a dot, and a top-level domain of 2 to 7 letters.
+     * @param email Email address to check
+     * @return true if the format is valid
+     */
+    public static boolean isEmailFormat(String email) {
+        int length = email.length();
+        int i = 0;
+
+        // Local part: no empty segments, so no leading, trailing or double dots
+        boolean segmentEmpty = true;
+        for (; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '@') {
+                break;
+            }
+            if (c == '.') {
+                if (segmentEmpty) {
+                    return false;
+                }
+                segmentEmpty = true;
+            } else if (isLetterOrDigit(c) || c == '_' || c == '+' || c == '&' || c == '*' || c == '-') {
+                segmentEmpty = false;
+            } else {
+                return false;
+            }
+        }
+        if (i == length || segmentEmpty) {
+            return false;
+        }
+
+        // Domain: non-empty labels, the last of which is the top-level domain
+        int labelStart = ++i;
+        int labels = 0;
+        boolean lettersOnly = true;
+        for (; i < length; i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                if (i == labelStart) {
+                    return false;
+                }
+                labels++;
+                labelStart = i + 1;
+                lettersOnly = true;
+            } else if ((c >= '0' && c <= '9') || c == '-') {
+                lettersOnly = false;
+            } else if (!isLetter(c)) {
+                return false;
+            }
+        }
+        int topLevelLength = length - labelStart;
+        return labels > 0 && lettersOnly && topLevelLength >= 2 && topLevelLength <= 7;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || (c >= '0' && c <= '9');
+    }
+
     /**
      * Validates that age is within acceptable range
      * @param age Age to validate
      * @throws InvalidAgeException If age is outside acceptable range
      */
     public static void isValidAge(int age) throws InvalidAgeException {
-        if (age < MIN_AGE || age > MAX_AGE) {
+        if (!checkAge(age).isValid()) {
             throw new InvalidAgeException(
                 String.format("Age must be between %d and %d. You entered: %d",
                 MIN_AGE, MAX_AGE, age)
@@ -47,13 +120,22 @@ public class Validator {
         }
     }
 
+    /**
+     * Checks an age without throwing
+     * @param age Age to check
+     * @return VALID or OUT_OF_RANGE
+     */
+    public static ValidationResult checkAge(int age) {
+        return age < MIN_AGE || age > MAX_AGE ? ValidationResult.OUT_OF_RANGE : ValidationResult.VALID;
+    }
+
     /**
      * Validate that GPA is within the acceptable range
      * @param gpa GPA to validate
      * @throws InvalidGpaException if GPA is outside acceptable range
      */
     public static void isValidGpa(double gpa) throws InvalidGpaException {
-        if (gpa < MIN_GPA || gpa > MAX_GPA) {
+        if (!checkGpa(gpa).isValid()) {
             throw new InvalidGpaException(
                 String.format("GPA must be between %.1f and %.1f. You entered: %.2f",
                 MIN_GPA, MAX_GPA, gpa)
@@ -61,6 +143,15 @@ public class Validator {
         }
     }
 
+    /**
+     * Checks a GPA without throwing
+     * @param gpa GPA to check
+     * @return VALID, or OUT_OF_RANGE for values outside the range and NaN
+     */
+    public static ValidationResult checkGpa(double gpa) {
+        return gpa >= MIN_GPA && gpa <= MAX_GPA ? ValidationResult.VALID : ValidationResult.OUT_OF_RANGE;
+    }
+
     /**
      * Validates that a string is not empty
      * 